@@ -0,0 +1,276 @@
+/* Copyright (C) 2006-2007 Laurent A.V. Szyster
+
+This library is free software; you can redistribute it and/or modify
+it under the terms of version 2 of the GNU Lesser General Public License as
+published by the Free Software Foundation.
+
+   http://www.gnu.org/copyleft/lesser.html
+
+This library is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+
+You should have received a copy of the GNU Lesser General Public License
+along with this library; if not, write to the Free Software Foundation,
+Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA */
+
+package org.less4j.protocols; // less java for more applications
+
+import java.util.Date;
+
+/**
+ * An immutable instant, in milliseconds since the epoch, read from and
+ * written to ISO 8601 texts without <code>SimpleDateFormat</code> or
+ * <code>Calendar</code>, safe to share between threads.
+ *
+ * @p Texts are read as
+ *
+ * @pre yyyy-MM-ddTHH:mm[:ss[.SSS]][Z|+HH:mm|-HH:mm]
+ *
+ * @p with a space accepted instead of the <code>T</code>, up to nine
+ * digits of fraction truncated to milliseconds and texts without a zone
+ * read as UTC. Instants are written in UTC as
+ *
+ * @pre yyyy-MM-ddTHH:mm:ss[.SSS]Z
+ *
+ * @p with a fraction only when their milliseconds are not zero.
+ */
+public final class DateTime implements Comparable {
+
+    /**
+     * The value returned by <code>parse</code> for invalid texts, never
+     * the time of a valid one.
+     */
+    public static final long INVALID = Long.MIN_VALUE;
+
+    private static final long DAY = 86400000L;
+    private static final int[] MONTHS = {
+        31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31
+        };
+
+    private final long time;
+
+    /**
+     * Instanciate the instant <code>time</code> milliseconds after the
+     * epoch.
+     *
+     * @param time in milliseconds since 1970-01-01T00:00:00Z
+     */
+    public DateTime(long time) {this.time = time;}
+
+    /**
+     * @return the milliseconds since the epoch
+     */
+    public final long getTime() {return time;}
+
+    /**
+     * @return a new <code>java.util.Date</code> of the same instant
+     */
+    public final Date toDate() {return new Date(time);}
+
+    public final boolean equals(Object other) {
+        return (
+            other instanceof DateTime && ((DateTime) other).time == time
+            );
+    }
+
+    public final int hashCode() {return (int) (time ^ (time >>> 32));}
+
+    public final int compareTo(Object other) {
+        long t = ((DateTime) other).time;
+        return (time < t ? -1: (time == t ? 0: 1));
+    }
+
+    /**
+     * @return the ISO 8601 text of this instant in UTC
+     */
+    public final String toString() {
+        char[] chars = new char[32];
+        return new String(chars, 0, format(time, chars, 0));
+    }
+
+    private static final int digits(String text, int at, int n) {
+        int value = 0, d;
+        for (int end = at + n; at < end; at++) {
+            d = text.charAt(at) - '0';
+            if (d < 0 || d > 9)
+                return -1;
+            value = value * 10 + d;
+        }
+        return value;
+    }
+
+    private static final int digits(char[] chars, int at, long value, int n) {
+        for (int i = at + n - 1; i >= at; i--) {
+            chars[i] = (char) ('0' + (int) (value % 10));
+            value = value / 10;
+        }
+        return at + n;
+    }
+
+    /**
+     * Count the days from 1970-01-01 to a date of the proleptic Gregorian
+     * calendar.
+     */
+    private static final long days(int year, int month, int day) {
+        if (month <= 2)
+            year--;
+        int era = (year >= 0 ? year: year - 399) / 400;
+        int yoe = year - era * 400;
+        int doy = (153 * (month > 2 ? month - 3: month + 9) + 2) / 5 + day - 1;
+        int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097L + doe - 719468;
+    }
+
+    /**
+     * Read the milliseconds since the epoch of an ISO 8601 date and time,
+     * allocating nothing.
+     *
+     * @param text to read
+     * @return the time of <code>text</code> or <code>INVALID</code>
+     */
+    public static final long parse(String text) {
+        int L = text.length();
+        if (L < 16
+            || text.charAt(4) != '-'
+            || text.charAt(7) != '-'
+            || text.charAt(13) != ':')
+            return INVALID;
+
+        char c = text.charAt(10);
+        if (!(c == 'T' || c == ' ' || c == 't'))
+            return INVALID;
+
+        int year = digits(text, 0, 4);
+        int month = digits(text, 5, 2);
+        int day = digits(text, 8, 2);
+        int hour = digits(text, 11, 2);
+        int minute = digits(text, 14, 2);
+        int second = 0, millis = 0, offset = 0, i = 16;
+        if (i < L && text.charAt(i) == ':') {
+            if (i + 3 > L)
+                return INVALID;
+
+            second = digits(text, i + 1, 2);
+            i += 3;
+            if (i < L && text.charAt(i) == '.') {
+                int start = ++i, d;
+                while (i < L) {
+                    d = text.charAt(i) - '0';
+                    if (d < 0 || d > 9)
+                        break;
+                    if (i - start < 3)
+                        millis = millis * 10 + d;
+                    i++;
+                }
+                if (i == start || i - start > 9)
+                    return INVALID;
+
+                for (int n = i - start; n < 3; n++)
+                    millis = millis * 10;
+            }
+        }
+        if (i < L) {
+            c = text.charAt(i);
+            if (c == 'Z' || c == 'z')
+                i++;
+            else if (c == '+' || c == '-') {
+                if (i + 3 > L)
+                    return INVALID;
+
+                int hours = digits(text, i + 1, 2), minutes = 0;
+                int sign = (c == '-' ? -1: 1);
+                i += 3;
+                if (i < L && text.charAt(i) == ':')
+                    i++;
+                if (i < L) {
+                    if (i + 2 > L)
+                        return INVALID;
+
+                    minutes = digits(text, i, 2);
+                    i += 2;
+                }
+                if (hours < 0 || hours > 23 || minutes < 0 || minutes > 59)
+                    return INVALID;
+
+                offset = sign * (hours * 60 + minutes);
+            }
+        }
+        if (i != L
+            || year < 0
+            || month < 1 || month > 12
+            || day < 1
+            || hour < 0 || hour > 23
+            || minute < 0 || minute > 59
+            || second < 0 || second > 59)
+            return INVALID;
+
+        if (day > MONTHS[month - 1] && !(
+            month == 2 && day == 29
+            && year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)
+            ))
+            return INVALID;
+
+        return (
+            days(year, month, day) * DAY
+            + (hour * 3600 + minute * 60 + second) * 1000L
+            + millis
+            - offset * 60000L
+            );
+    }
+
+    /**
+     * Write the ISO 8601 text of an instant in UTC, with years before 0 or
+     * after 9999 signed.
+     *
+     * @param time in milliseconds since the epoch
+     * @param chars to fill, with room for 30 characters from
+     *        <code>at</code>
+     * @param at position of the first character
+     * @return the position after the last character written
+     */
+    public static final int format(long time, char[] chars, int at) {
+        long z = time / DAY;
+        int ms = (int) (time % DAY);
+        if (ms < 0) {
+            ms += DAY;
+            z--;
+        }
+        z += 719468;
+        long era = (z >= 0 ? z: z - 146096) / 146097;
+        int doe = (int) (z - era * 146097);
+        int yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        int doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        int mp = (5 * doy + 2) / 153;
+        int day = doy - (153 * mp + 2) / 5 + 1;
+        int month = (mp < 10 ? mp + 3: mp - 9);
+        long year = yoe + era * 400 + (month <= 2 ? 1: 0);
+        if (year < 0 || year > 9999) {
+            chars[at++] = (year < 0 ? '-': '+');
+            if (year < 0)
+                year = -year;
+            int n = 4;
+            for (long y = year / 10000; y > 0; y = y / 10)
+                n++;
+            at = digits(chars, at, year, n);
+        } else
+            at = digits(chars, at, year, 4);
+        chars[at++] = '-';
+        at = digits(chars, at, month, 2);
+        chars[at++] = '-';
+        at = digits(chars, at, day, 2);
+        chars[at++] = 'T';
+        at = digits(chars, at, ms / 3600000, 2);
+        chars[at++] = ':';
+        at = digits(chars, at, (ms / 60000) % 60, 2);
+        chars[at++] = ':';
+        at = digits(chars, at, (ms / 1000) % 60, 2);
+        if (ms % 1000 != 0) {
+            chars[at++] = '.';
+            at = digits(chars, at, ms % 1000, 3);
+        }
+        chars[at++] = 'Z';
+        return at;
+    }
+
+}
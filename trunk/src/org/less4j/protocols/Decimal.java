@@ -0,0 +1,507 @@
+/* Copyright (C) 2006-2007 Laurent A.V. Szyster
+
+This library is free software; you can redistribute it and/or modify
+it under the terms of version 2 of the GNU Lesser General Public License as
+published by the Free Software Foundation.
+
+   http://www.gnu.org/copyleft/lesser.html
+
+This library is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+
+You should have received a copy of the GNU Lesser General Public License
+along with this library; if not, write to the Free Software Foundation,
+Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA */
+
+package org.less4j.protocols; // less java for more applications
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Conversions of numbers to their JSON text, written in a buffer of
+ * characters instead of a new <code>String</code>.
+ *
+ * @p Integers are written digit by digit. Doubles are written with the
+ * shortest digits that read back as the same double, found with Florian
+ * Loitsch's Grisu3 algorithm, in the notation of
+ * <code>Double.toString</code> without a zero fraction. Decimals that
+ * fit a <code>long</code> are written without their trailing zeros.
+ *
+ * @p The few doubles Grisu3 cannot decide, subnormal doubles and other
+ * numbers are left to <code>toString</code>.
+ *
+ * @p Decimal significands and exponents are converted to the nearest
+ * double with the Eisel-Lemire algorithm, which leaves the few ambiguous
+ * cases to <code>Double.parseDouble</code>.
+ */
+public final class Decimal {
+
+    private static final long HIDDEN = 0x0010000000000000L;
+    private static final long FRACTION = 0x000FFFFFFFFFFFFFL;
+    private static final long LOW32 = 0xFFFFFFFFL;
+    private static final double LOG10_2 = 0.30102999566398114;
+    private static final int FAILED = Integer.MIN_VALUE;
+    private static final int[] POWERS = {
+        1, 10, 100, 1000, 10000, 100000, 1000000, 10000000, 100000000,
+        1000000000
+        };
+    private static final long[] LONGS = new long[19];
+    static {
+        LONGS[0] = 1;
+        for (int i = 1; i < LONGS.length; i++)
+            LONGS[i] = LONGS[i - 1] * 10;
+    }
+
+    /**
+     * The normalized 64 bits significands and binary exponents of the
+     * powers of ten from 10^-348 to 10^340 by steps of 8, rounded.
+     */
+    private static final long[] CACHED = new long[87];
+    private static final int[] BINARY = new int[87];
+    private static final int[] DECIMAL = new int[87];
+    static {
+        BigInteger ten = BigInteger.valueOf(10);
+        for (int i = 0; i < CACHED.length; i++) {
+            int k = -348 + 8 * i;
+            BigInteger num = (k < 0 ? BigInteger.ONE: ten.pow(k));
+            BigInteger den = (k < 0 ? ten.pow(-k): BigInteger.ONE);
+            int e = num.bitLength() - den.bitLength() - 64;
+            BigInteger q;
+            while (true) {
+                BigInteger n = (e < 0 ? num.shiftLeft(-e): num);
+                BigInteger d = (e > 0 ? den.shiftLeft(e): den);
+                BigInteger[] qr = n.divideAndRemainder(d);
+                q = qr[0];
+                if (qr[1].shiftLeft(1).compareTo(d) >= 0)
+                    q = q.add(BigInteger.ONE);
+                if (q.bitLength() > 64)
+                    e++;
+                else if (q.bitLength() < 64)
+                    e--;
+                else
+                    break;
+            }
+            CACHED[i] = q.longValue();
+            BINARY[i] = e;
+            DECIMAL[i] = k;
+        }
+    }
+
+    /**
+     * The 128 bits significands of the powers of ten from 10^-342 to
+     * 10^308, normalized and rounded down, except those from 10^-27 to
+     * 10^-1 which are rounded up.
+     */
+    private static final long[] HIGH = new long[651];
+    private static final long[] LOW = new long[651];
+    static {
+        BigInteger five = BigInteger.valueOf(5);
+        for (int i = 0; i < HIGH.length; i++) {
+            int q = i - 342;
+            BigInteger m;
+            if (q < 0) {
+                BigInteger p = five.pow(-q);
+                int z = p.bitLength();
+                if (q >= -27)
+                    m = BigInteger.ONE.shiftLeft(z + 127).divide(p);
+                else
+                    m = BigInteger.ONE.shiftLeft(2 * z + 128).divide(p);
+                m = m.add(BigInteger.ONE);
+            } else
+                m = five.pow(q);
+            int shift = 128 - m.bitLength();
+            m = (shift > 0 ? m.shiftLeft(shift): m.shiftRight(-shift));
+            HIGH[i] = m.shiftRight(64).longValue();
+            LOW[i] = m.longValue();
+        }
+    }
+
+    private Decimal() {}
+
+    private static final boolean below(long a, long b) {
+        return (a ^ Long.MIN_VALUE) < (b ^ Long.MIN_VALUE);
+    }
+
+    /**
+     * Return the high 64 bits of the product of two unsigned 64 bits
+     * integers.
+     */
+    private static final long high(long x, long y) {
+        long a = x >>> 32, b = x & LOW32, c = y >>> 32, d = y & LOW32;
+        long ad = a * d, bc = b * c;
+        long mid = ((b * d) >>> 32) + (ad & LOW32) + (bc & LOW32);
+        return a * c + (ad >>> 32) + (bc >>> 32) + (mid >>> 32);
+    }
+
+    private static final int leadingZeros(long x) {
+        int n = 0;
+        if ((x >>> 32) == 0) {n += 32; x <<= 32;}
+        if ((x >>> 48) == 0) {n += 16; x <<= 16;}
+        if ((x >>> 56) == 0) {n += 8; x <<= 8;}
+        if ((x >>> 60) == 0) {n += 4; x <<= 4;}
+        if ((x >>> 62) == 0) {n += 2; x <<= 2;}
+        if ((x >>> 63) == 0) n += 1;
+        return n;
+    }
+
+    /**
+     * Return the high 64 bits of the product of two unsigned 64 bits
+     * significands, rounded.
+     */
+    private static final long times(long x, long y) {
+        long a = x >>> 32, b = x & LOW32, c = y >>> 32, d = y & LOW32;
+        long ac = a * c, bc = b * c, ad = a * d, bd = b * d;
+        long tmp = (bd >>> 32) + (ad & LOW32) + (bc & LOW32) + (1L << 31);
+        return ac + (ad >>> 32) + (bc >>> 32) + (tmp >>> 32);
+    }
+
+    /**
+     * Write a number's JSON text in <code>chars</code> from
+     * <code>at</code>, return the position after the last character
+     * written or -1 if the number must be written by its
+     * <code>toString</code> method.
+     *
+     * @param value to write
+     * @param chars to fill, with room for 32 characters from
+     *        <code>at</code>
+     * @param at position of the first character
+     * @return the position after the last character written or -1
+     */
+    public static final int format(Number value, char[] chars, int at) {
+        if (value instanceof Integer || value instanceof Long)
+            return format(value.longValue(), chars, at);
+        else if (value instanceof Double)
+            return format(value.doubleValue(), chars, at);
+        else if (value instanceof BigDecimal)
+            return format((BigDecimal) value, chars, at);
+        else if (value instanceof Short || value instanceof Byte)
+            return format(value.longValue(), chars, at);
+        return -1;
+    }
+
+    /**
+     * Write the decimal digits of a <code>long</code>.
+     *
+     * @param l to write
+     * @param chars to fill
+     * @param at position of the first character
+     * @return the position after the last character written
+     */
+    public static final int format(long l, char[] chars, int at) {
+        if (l < 0)
+            chars[at++] = '-';
+        else
+            l = -l; // Long.MIN_VALUE has no positive
+        int end = at + 1;
+        if (l < Integer.MIN_VALUE) {
+            for (long n = l; n < -9; n = n / 10)
+                end++;
+        } else {
+            while (end - at < 10 && l <= -POWERS[end - at])
+                end++;
+        }
+        int i = end;
+        while (l < Integer.MIN_VALUE) {
+            chars[--i] = (char) ('0' - (int) (l % 10));
+            l = l / 10;
+        }
+        int n = (int) l, q;
+        do {
+            q = n / 10;
+            chars[--i] = (char) ('0' + q * 10 - n);
+            n = q;
+        } while (n < 0);
+        return end;
+    }
+
+    /**
+     * Write the shortest decimal that reads back as a double in the
+     * notation of <code>Double.toString</code> without a zero fraction,
+     * or return -1 for infinities, NaN, subnormal doubles and the doubles
+     * for which Grisu3 does not find the shortest digits.
+     *
+     * @param d to write
+     * @param chars to fill
+     * @param at position of the first character
+     * @return the position after the last character written or -1
+     */
+    public static final int format(double d, char[] chars, int at) {
+        long bits = Double.doubleToRawLongBits(d);
+        int biased = (int) ((bits >>> 52) & 0x7FF);
+        if (biased == 0x7FF)
+            return -1;
+
+        if (bits < 0) {
+            chars[at++] = '-';
+            d = -d;
+        }
+        if ((bits & Long.MAX_VALUE) == 0) {
+            chars[at++] = '0';
+            return at;
+        }
+        if (biased == 0)
+            return -1; // Double.toString may prefer two closer digits
+
+        if (d < 1e7 && d == (long) d)
+            return format((long) d, chars, at);
+
+        int n = grisu3(
+            (bits & FRACTION) | HIDDEN, biased - 1075, biased > 1, chars, at
+            );
+        if (n == FAILED)
+            return -1;
+
+        int length = n & 0x1F, exponent = n >> 5;
+        while (chars[at + length - 1] == '0') {
+            length--;
+            exponent++;
+        }
+        int point = length + exponent; // digits before the point
+        if (d >= 1e-3 && d < 1e7) {
+            if (point >= length) {
+                for (int i = length; i < point; i++)
+                    chars[at + i] = '0';
+                return at + point;
+            } else if (point > 0) {
+                System.arraycopy(chars, at + point, chars, at + point + 1, length - point);
+                chars[at + point] = '.';
+                return at + length + 1;
+            } else {
+                System.arraycopy(chars, at, chars, at + 2 - point, length);
+                chars[at] = '0';
+                chars[at + 1] = '.';
+                for (int i = 0; i < -point; i++)
+                    chars[at + 2 + i] = '0';
+                return at + 2 - point + length;
+            }
+        }
+        if (length == 1) {
+            chars[at + 1] = '.';
+            chars[at + 2] = '0';
+        } else {
+            System.arraycopy(chars, at + 1, chars, at + 2, length - 1);
+            chars[at + 1] = '.';
+        }
+        at += (length == 1 ? 3: length + 1);
+        chars[at++] = 'E';
+        return format((long) (point - 1), chars, at);
+    }
+
+    /**
+     * Generate the shortest digits of <code>f * 2^e</code> in
+     * <code>chars</code> from <code>at</code>, return their count in the
+     * lower five bits and their decimal exponent shifted left by five, or
+     * <code>FAILED</code> if they may not be the shortest or the closest.
+     */
+    private static final int grisu3(
+        long f, int e, boolean closer, char[] chars, int at
+        ) {
+        // the double and its boundaries, normalized to 64 bits
+        long w = f << 11, plus = ((f << 1) + 1) << 10, minus;
+        int we = e - 11;
+        if (f == HIDDEN && closer)
+            minus = ((f << 2) - 1) << 9;
+        else
+            minus = ((f << 1) - 1) << 10;
+        // scale by a cached power of ten to a binary exponent in [-60, -32]
+        int min = -60 - (we + 64);
+        int i = (int) (((min + 63) * LOG10_2 + 348) / 8);
+        if (i < 0)
+            i = 0;
+        else if (i > CACHED.length - 1)
+            i = CACHED.length - 1;
+        while (i < CACHED.length - 1 && BINARY[i] < min)
+            i++;
+        while (i > 0 && BINARY[i - 1] >= min)
+            i--;
+        long c = CACHED[i];
+        int shift = -(we + BINARY[i] + 64);
+        w = times(w, c);
+        long unit = 1;
+        long low = times(minus, c) - unit;
+        long high = times(plus, c) + unit;
+        long unsafe = high - low;
+        long one = 1L << shift, mask = one - 1, fractionals = high & mask;
+        // the smallest power in range leaves less than 30 integral bits
+        int integrals = (int) (high >>> shift), kappa = 0, length = 0, digit;
+        while (kappa < 10 && POWERS[kappa] <= integrals)
+            kappa++;
+        long rest;
+        while (kappa > 0) {
+            kappa--;
+            digit = integrals / POWERS[kappa];
+            chars[at + length++] = (char) ('0' + digit);
+            integrals -= digit * POWERS[kappa];
+            rest = (((long) integrals) << shift) + fractionals;
+            if (below(rest, unsafe)) {
+                if (!weed(
+                    chars, at + length - 1, high - w, unsafe, rest,
+                    ((long) POWERS[kappa]) << shift, unit
+                    ))
+                    return FAILED;
+
+                return ((kappa - DECIMAL[i]) << 5) | length;
+            }
+        }
+        while (true) {
+            fractionals *= 10;
+            unit *= 10;
+            unsafe *= 10;
+            chars[at + length++] = (char) ('0' + (int) (fractionals >>> shift));
+            fractionals &= mask;
+            kappa--;
+            if (below(fractionals, unsafe)) {
+                if (!weed(
+                    chars, at + length - 1, (high - w) * unit, unsafe,
+                    fractionals, one, unit
+                    ))
+                    return FAILED;
+
+                return ((kappa - DECIMAL[i]) << 5) | length;
+            }
+            if (length > 18)
+                return FAILED;
+        }
+    }
+
+    /**
+     * Move the last digit closer to the double when it can be done safely,
+     * return false when the digits may not be the closest or may not read
+     * back as the double.
+     */
+    private static final boolean weed(
+        char[] chars, int last, long distance, long unsafe, long rest,
+        long ten, long unit
+        ) {
+        long small = distance - unit, big = distance + unit;
+        while (
+            below(rest, small) && !below(unsafe - rest, ten) && (
+                below(rest + ten, small) ||
+                !below(small - rest, rest + ten - small)
+                )
+            ) {
+            chars[last]--;
+            rest += ten;
+        }
+        if (
+            below(rest, big) && !below(unsafe - rest, ten) && (
+                below(rest + ten, big) ||
+                below(rest + ten - big, big - rest)
+                )
+            )
+            return false;
+
+        return !below(rest, 2 * unit) && !below(unsafe - 4 * unit, rest);
+    }
+
+    /**
+     * Write a <code>BigDecimal</code> which unscaled value fits in a
+     * <code>long</code> without its trailing fractional zeros, or return
+     * -1 if <code>toString</code> would write it with an exponent.
+     *
+     * @param value to write
+     * @param chars to fill
+     * @param at position of the first character
+     * @return the position after the last character written or -1
+     */
+    public static final int format(BigDecimal value, char[] chars, int at) {
+        int scale = value.scale();
+        if (scale < 0)
+            return -1;
+
+        BigInteger unscaled = value.unscaledValue();
+        if (unscaled.bitLength() > 62)
+            return -1;
+
+        long u = unscaled.longValue();
+        if (u < 0) {
+            chars[at++] = '-';
+            u = -u;
+        }
+        int digits = 1;
+        while (digits < 19 && u >= LONGS[digits])
+            digits++;
+        if (digits - 1 - scale < -6)
+            return -1;
+
+        while (scale > 0 && u % 10 == 0) {
+            u = u / 10;
+            scale--;
+            digits--;
+        }
+        if (scale == 0)
+            return format(u, chars, at);
+
+        int end = at + (digits > scale ? digits: scale + 1) + 1, i = end;
+        for (int k = 0; k < scale; k++) {
+            chars[--i] = (char) ('0' + (int) (u % 10));
+            u = u / 10;
+        }
+        chars[--i] = '.';
+        do {
+            chars[--i] = (char) ('0' + (int) (u % 10));
+            u = u / 10;
+        } while (u > 0);
+        return end;
+    }
+
+
+    /**
+     * Return the double nearest to <code>significand * 10^exponent</code>,
+     * or NaN when it is subnormal or infinite.
+     *
+     * @p This is Daniel Lemire's version of the algorithm, which product
+     * of 128 bits is proved sufficient by Noble Mushtak and Lemire for all
+     * normal doubles.
+     *
+     * @param significand an unsigned 64 bits integer
+     * @param exponent a power of ten
+     * @return a positive double or NaN
+     */
+    public static final double parse(long significand, int exponent) {
+        if (significand == 0)
+            return 0.0;
+
+        if (exponent < -342 || exponent > 308)
+            return Double.NaN;
+
+        int lz = leadingZeros(significand);
+        long w = significand << lz;
+        int i = exponent + 342;
+        long hi = high(w, HIGH[i]), lo = w * HIGH[i];
+        if ((hi & 0x1FF) == 0x1FF) {
+            // the lower 64 bits of the power may carry in the result
+            long carry = high(w, LOW[i]);
+            lo += carry;
+            if (below(lo, carry))
+                hi++;
+        }
+        int upper = (int) (hi >>> 63), shift = upper + 9;
+        long mantissa = hi >>> shift;
+        int exp2 = ((217706 * exponent) >> 16) + 63 + upper - lz + 1023;
+        if (exp2 <= 0)
+            return Double.NaN;
+
+        if (
+            (lo == 0 || lo == 1) && exponent >= -4 && exponent <= 23 &&
+            (mantissa & 3) == 1 && (mantissa << shift) == hi
+            )
+            mantissa &= ~1L; // exactly half way, round to even
+
+        mantissa += mantissa & 1;
+        mantissa >>>= 1;
+        if (mantissa >= (2L << 52)) {
+            mantissa = 1L << 52;
+            exp2++;
+        }
+        if (exp2 >= 0x7FF)
+            return Double.NaN;
+
+        return Double.longBitsToDouble(
+            (((long) exp2) << 52) | (mantissa & FRACTION)
+            );
+    }
+
+}
@@ -20,13 +20,23 @@ import java.util.Map;
 import java.util.List;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.ListIterator;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
 import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.text.CharacterIterator;
-import java.text.StringCharacterIterator;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.IOException;
+import java.io.Serializable;
 
 import org.less4j.simple.Bytes;
 import org.less4j.simple.IO;
@@ -208,9 +218,37 @@ public class JSON {
         public int jsonIndex = -1;
         
         /**
-         * The path to the JSON error value, if any.
+         * Fill in the stack trace of JSON errors, <code>true</code> unless
+         * the system property <code>less4j.json.traces</code> is set to 
+         * <code>false</code> when this class loads.
+         * 
+         * @p Applications that just reject invalid input can turn it off
+         * at startup, then errors cost little more than the scan that 
+         * found them and their stack trace is empty.
+         * 
+         * @pre java -Dless4j.json.traces=false ...
+         */
+        public static final boolean traces = tracing();
+        
+        private static final boolean tracing() {
+            try {
+                return !"false".equals(
+                    System.getProperty("less4j.json.traces")
+                    );
+            } catch (SecurityException e) {
+                return true;
+            }
+        }
+        
+        /**
+         * The names and indexes of the path to the JSON error value, from
+         * the innermost. 
          */
-        public ArrayList jsonPath = new ArrayList();
+        protected java.lang.Object[] path = null;
+        
+        protected int depth = 0;
+        
+        private ArrayList jsonPath = null;
         
         /**
          * Instanciate a JSON error with an error message.
@@ -231,6 +269,47 @@ public class JSON {
             jsonIndex = index;
             }
         
+        /**
+         * Skip the stack trace unless <code>traces</code> is set.
+         */
+        public Throwable fillInStackTrace() {
+            return (traces ? super.fillInStackTrace(): this);
+        }
+        
+        /**
+         * Prepend the name or index of a value containing the error to 
+         * its path.
+         * 
+         * @param segment a <code>String</code> or an <code>Integer</code>
+         * @return this error
+         */
+        public final Error path(java.lang.Object segment) {
+            if (path == null)
+                path = new java.lang.Object[8];
+            else if (depth == path.length) {
+                java.lang.Object[] grown = new java.lang.Object[depth * 2];
+                System.arraycopy(path, 0, grown, 0, depth);
+                path = grown;
+            }
+            path[depth++] = segment;
+            jsonPath = null;
+            return this;
+        }
+        
+        /**
+         * Return the path to the JSON error value, built on demand.
+         * 
+         * @return a list of names and indexes, maybe empty
+         */
+        public final ArrayList jsonPath() {
+            if (jsonPath == null) {
+                jsonPath = new ArrayList(depth);
+                for (int i = depth - 1; i > -1; i--)
+                    jsonPath.add(path[i]);
+            }
+            return jsonPath;
+        }
+        
         /**
          * Buffers the JSON representation of a <code>JSON.Error</code>.
          * 
@@ -252,7 +331,7 @@ public class JSON {
             sb.append(',');
             sb.append(jsonIndex);
             sb.append(',');
-            JSON.strb(sb, jsonPath);
+            JSON.strb(sb, jsonPath());
             sb.append(']');
             return sb;
         }
@@ -287,6 +366,16 @@ public class JSON {
         "Number type error";
     protected static final String NULL_JSON_STRING = 
         "null JSON string";
+    protected static final String NULL_TYPE_ERROR = 
+        "null type error";
+    protected static final String CLASS_TYPE_ERROR = 
+        "Class type error";
+    protected static final String INSTANCIATION_ERROR = 
+        "Instanciation error";
+    protected static final String PATH_SYNTAX_ERROR = 
+        "path syntax error";
+    protected static final String DEPTH_ERROR = 
+        "depth overflow";
     
     protected static final char _done = CharacterIterator.DONE;
     
@@ -362,6 +451,8 @@ public class JSON {
      * helps a lot and make the whole a lot clearer to read and debug. 
      */
     public static class Object extends HashMap {
+        private static final long serialVersionUID = 1L;
+        
         /**
          * Access an <code>Number</code> value by name.
          * 
@@ -759,6 +850,435 @@ public class JSON {
         }
     }
 
+    /**
+     * The offset of a value not yet decoded in the source of a lazy
+     * object or array.
+     */
+    protected static final class Slot {
+        protected final int offset;
+        protected Slot(int offset) {this.offset = offset;}
+    }
+    
+    /**
+     * A <code>JSON.Object</code> evaluated lazily: its members are indexed
+     * when first accessed and each value is decoded from the source only
+     * when first read, then kept. Bulk access to its values, entries or
+     * a copy decodes all remaining values and releases the source.
+     * 
+     * @p Like <code>JSON.Object</code>, it is not safe to access from
+     * concurrent threads.
+     */
+    public static class LazyObject extends Object {
+        private static final long serialVersionUID = 0L;
+        private JSON document;
+        private int offset;
+        private boolean indexed = false;
+        protected LazyObject(JSON document, int offset) {
+            this.document = document;
+            this.offset = offset;
+        }
+        protected final void index() {
+            if (!indexed) {
+                indexed = true;
+                document.index(this, offset);
+            }
+        }
+        protected final void slot(String name, int offset) {
+            super.put(name, new Slot(offset));
+        }
+        protected final void all() {
+            index();
+            if (document == null)
+                return;
+            
+            Iterator it = super.entrySet().iterator();
+            Map.Entry entry;
+            while (it.hasNext()) {
+                entry = (Map.Entry) it.next();
+                if (entry.getValue() instanceof Slot)
+                    entry.setValue(document.decode(
+                        ((Slot) entry.getValue()).offset
+                        ));
+            }
+            document = null;
+        }
+        private java.lang.Object writeReplace() {
+            all(); return this;
+        }
+        public java.lang.Object get(java.lang.Object key) {
+            index();
+            java.lang.Object value = super.get(key);
+            if (value instanceof Slot) {
+                value = document.decode(((Slot) value).offset);
+                super.put(key, value);
+            }
+            return value;
+        }
+        public boolean containsKey(java.lang.Object key) {
+            index(); return super.containsKey(key);
+        }
+        public boolean containsValue(java.lang.Object value) {
+            all(); return super.containsValue(value);
+        }
+        public int size() {
+            index(); return super.size();
+        }
+        public boolean isEmpty() {
+            index(); return super.isEmpty();
+        }
+        public java.lang.Object put(java.lang.Object key, java.lang.Object value) {
+            index(); 
+            java.lang.Object old = super.put(key, value);
+            return (old instanceof Slot ? document.decode(((Slot) old).offset): old);
+        }
+        public void putAll(Map map) {
+            index(); super.putAll(map);
+        }
+        public java.lang.Object remove(java.lang.Object key) {
+            index(); 
+            java.lang.Object old = super.remove(key);
+            return (old instanceof Slot ? document.decode(((Slot) old).offset): old);
+        }
+        public void clear() {
+            index(); super.clear();
+        }
+        public Set keySet() {
+            index(); return super.keySet();
+        }
+        public Collection values() {
+            all(); return super.values();
+        }
+        public Set entrySet() {
+            all(); return super.entrySet();
+        }
+        public java.lang.Object clone() {
+            all(); return super.clone();
+        }
+    }
+    
+    /**
+     * A <code>JSON.Array</code> evaluated lazily: its items are indexed
+     * when first accessed and each one is decoded from the source only 
+     * when first read, then kept. Other access than <code>get</code>, 
+     * <code>size</code> and <code>isEmpty</code> decodes all remaining 
+     * items and releases the source.
+     * 
+     * @p Like <code>ArrayList</code>, it is not safe to access from
+     * concurrent threads.
+     */
+    public static class LazyArray extends Array {
+        private static final long serialVersionUID = 0L;
+        private JSON document;
+        private int offset;
+        private boolean indexed = false;
+        protected LazyArray(JSON document, int offset) {
+            this.document = document;
+            this.offset = offset;
+        }
+        protected final void index() {
+            if (!indexed) {
+                indexed = true;
+                document.index(this, offset);
+            }
+        }
+        protected final void slot(int offset) {
+            super.add(new Slot(offset));
+        }
+        protected final void all() {
+            index();
+            if (document == null)
+                return;
+            
+            java.lang.Object item;
+            for (int i=0, L=super.size(); i<L; i++) {
+                item = super.get(i);
+                if (item instanceof Slot)
+                    super.set(i, document.decode(((Slot) item).offset));
+            }
+            document = null;
+        }
+        private java.lang.Object writeReplace() {
+            all(); return this;
+        }
+        public java.lang.Object get(int index) {
+            index();
+            java.lang.Object item = super.get(index);
+            if (item instanceof Slot) {
+                item = document.decode(((Slot) item).offset);
+                super.set(index, item);
+            }
+            return item;
+        }
+        public int size() {
+            index(); return super.size();
+        }
+        public boolean isEmpty() {
+            index(); return super.isEmpty();
+        }
+        public boolean contains(java.lang.Object item) {
+            all(); return super.contains(item);
+        }
+        public int indexOf(java.lang.Object item) {
+            all(); return super.indexOf(item);
+        }
+        public int lastIndexOf(java.lang.Object item) {
+            all(); return super.lastIndexOf(item);
+        }
+        public java.lang.Object[] toArray() {
+            all(); return super.toArray();
+        }
+        public java.lang.Object[] toArray(java.lang.Object[] a) {
+            all(); return super.toArray(a);
+        }
+        public java.lang.Object set(int index, java.lang.Object item) {
+            all(); return super.set(index, item);
+        }
+        public boolean add(java.lang.Object item) {
+            all(); return super.add(item);
+        }
+        public void add(int index, java.lang.Object item) {
+            all(); super.add(index, item);
+        }
+        public java.lang.Object remove(int index) {
+            all(); return super.remove(index);
+        }
+        public boolean remove(java.lang.Object item) {
+            all(); return super.remove(item);
+        }
+        public void clear() {
+            all(); super.clear();
+        }
+        public boolean addAll(Collection items) {
+            all(); return super.addAll(items);
+        }
+        public boolean addAll(int index, Collection items) {
+            all(); return super.addAll(index, items);
+        }
+        public boolean containsAll(Collection items) {
+            all(); return super.containsAll(items);
+        }
+        public boolean removeAll(Collection items) {
+            all(); return super.removeAll(items);
+        }
+        public boolean retainAll(Collection items) {
+            all(); return super.retainAll(items);
+        }
+        public Iterator iterator() {
+            all(); return super.iterator();
+        }
+        public ListIterator listIterator() {
+            all(); return super.listIterator();
+        }
+        public ListIterator listIterator(int index) {
+            all(); return super.listIterator(index);
+        }
+        public List subList(int from, int to) {
+            all(); return super.subList(from, to);
+        }
+        public boolean equals(java.lang.Object o) {
+            all(); return super.equals(o);
+        }
+        public int hashCode() {
+            all(); return super.hashCode();
+        }
+        public java.lang.Object clone() {
+            all(); return super.clone();
+        }
+    }
+    
+    /**
+     * A bounded table of interned names that interpreters running in 
+     * concurrent threads can share to canonicalize the names of object 
+     * members without allocating a new <code>String</code> for each 
+     * member of each object evaluated.
+     * 
+     * @p The table is a fixed array of strings indexed by their hash code
+     * and probed in a few slots, where new names replace old ones when
+     * all slots are taken. Strings being immutable, it is safe to read 
+     * and update without synchronization: a race may only cause a miss.
+     * 
+     * @pre JSON json = new JSON();
+     *json.symbols = JSON.SYMBOLS;
+     */
+    public static class Symbols {
+        protected static final int PROBES = 4;
+        protected final String[] table;
+        protected final int mask;
+        /**
+         * Instanciate a table of at least <code>size</code> names, 
+         * rounded up to the next power of two.
+         * 
+         * @param size of the table
+         */
+        public Symbols(int size) {
+            int capacity = 16;
+            while (capacity < size) capacity = capacity << 1;
+            table = new String[capacity];
+            mask = capacity - 1;
+        }
+        /**
+         * Return the interned instance equal to <code>name</code>, 
+         * interning <code>name</code> itself if no equal instance is 
+         * found in the table.
+         * 
+         * @param name to intern
+         * @return an equal <code>String</code>
+         */
+        public final String intern(String name) {
+            int hash = name.hashCode(), i, slot;
+            String symbol;
+            for (i = 0; i < PROBES; i++) {
+                slot = (hash + i) & mask;
+                symbol = table[slot];
+                if (symbol == null) {
+                    table[slot] = name;
+                    return name;
+                } else if (symbol.hashCode() == hash && symbol.equals(name))
+                    return symbol;
+            }
+            table[hash & mask] = name;
+            return name;
+        }
+        protected final String intern(
+            char[] chars, int offset, int length, int hash
+            ) {
+            int i, j, slot;
+            String symbol;
+            for (i = 0; i < PROBES; i++) {
+                slot = (hash + i) & mask;
+                symbol = table[slot];
+                if (symbol == null) {
+                    symbol = new String(chars, offset, length);
+                    table[slot] = symbol;
+                    return symbol;
+                } else if (
+                    symbol.hashCode() == hash && symbol.length() == length
+                    ) {
+                    for (j = 0; j < length; j++)
+                        if (symbol.charAt(j) != chars[offset + j])
+                            break;
+                    if (j == length)
+                        return symbol;
+                }
+            }
+            symbol = new String(chars, offset, length);
+            table[hash & mask] = symbol;
+            return symbol;
+        }
+        protected final String intern(
+            byte[] ascii, int offset, int length, int hash
+            ) {
+            int i, j, slot;
+            String symbol;
+            for (i = 0; i < PROBES; i++) {
+                slot = (hash + i) & mask;
+                symbol = table[slot];
+                if (symbol == null) {
+                    break;
+                } else if (
+                    symbol.hashCode() == hash && symbol.length() == length
+                    ) {
+                    for (j = 0; j < length; j++)
+                        if (symbol.charAt(j) != ascii[offset + j])
+                            break;
+                    if (j == length)
+                        return symbol;
+                }
+            }
+            char[] chars = new char[length];
+            for (j = 0; j < length; j++)
+                chars[j] = (char) ascii[offset + j];
+            return intern(chars, 0, length, hash);
+        }
+    }
+    
+    /**
+     * The table of names shared by default, seeded with the names of 
+     * <code>JSONR</code> namespaces.
+     */
+    public static final Symbols SYMBOLS = new Symbols(4096);
+    
+    /**
+     * An immutable configuration of limits and symbols that hands out one
+     * interpreter per thread, reset before each evaluation, so that 
+     * steady state applications do not allocate an interpreter for each
+     * request evaluated.
+     * 
+     * @pre static JSON.Interpreter limited = new JSON.Interpreter(
+     *    4, 16, JSON.SYMBOLS
+     *    );
+     *...
+     *JSON.Object map = limited.get().object("{\"pass\": true}");
+     */
+    public static class Interpreter {
+        public final int containers;
+        public final int iterations;
+        public final Symbols symbols;
+        public final boolean lazy;
+        protected final ThreadLocal interpreters = new ThreadLocal();
+        private final int threads = Runtime.getRuntime().availableProcessors();
+        /**
+         * ...
+         * 
+         * @param containers a limit on the number of objects and arrays
+         * @param iterations a limit on the total count of values
+         * @param symbols the table of interned names or <code>null</code>
+         */
+        public Interpreter(int containers, int iterations, Symbols symbols) {
+            this(containers, iterations, symbols, false);
+        }
+        /**
+         * ...
+         * 
+         * @param containers a limit on the number of objects and arrays
+         * @param iterations a limit on the total count of values
+         * @param symbols the table of interned names or <code>null</code>
+         * @param lazy evaluate objects and arrays lazily
+         */
+        public Interpreter(
+            int containers, int iterations, Symbols symbols, boolean lazy
+            ) {
+            this.containers = (containers > 0 ? containers: 1);
+            this.iterations = (iterations > 0 ? iterations: 1);
+            this.symbols = symbols;
+            this.lazy = lazy;
+        }
+        /**
+         * Return this thread's interpreter with its limits and options 
+         * reset.
+         * 
+         * @return a <code>JSON</code> interpreter
+         */
+        public final JSON get() {
+            JSON json = (JSON) interpreters.get();
+            if (json == null) {
+                json = create();
+                interpreters.set(json);
+            }
+            reset(json);
+            return json;
+        }
+        /**
+         * Reset all the public fields of this thread's interpreter, so 
+         * that options changed for one evaluation do not apply to the
+         * next ones.
+         * 
+         * @param json this thread's interpreter
+         */
+        protected void reset(JSON json) {
+            json.containers = containers;
+            json.iterations = iterations;
+            json.symbols = symbols;
+            json.lazy = lazy;
+            json.structural = 0;
+            json.parallel = 0;
+            json.threads = threads;
+        }
+        protected JSON create() {
+            return new JSON(containers, iterations);
+        }
+    }
+    
     // The Interpreter
     
     protected static final String ILLEGAL_UNICODE_SEQUENCE = 
@@ -785,11 +1305,53 @@ public class JSON {
         "containers overflow";
     protected static final String ITERATIONS_OVERFLOW = 
         "iterations overflow";
+    protected static final String VALUE_OVERFLOW = 
+        "value overflow";
     
     protected char c;
-    protected CharacterIterator it;
     protected StringBuffer buf;
     
+    /**
+     * The characters scanned, or <code>null</code> when scanning UTF-8
+     * encoded <code>bytes</code>.
+     */
+    protected char[] chars;
+    
+    /**
+     * The UTF-8 encoded bytes scanned, or <code>null</code> when scanning
+     * <code>chars</code>.
+     */
+    protected byte[] bytes;
+    
+    /**
+     * The index of the current character <code>c</code>, between 
+     * <code>begin</code> and <code>end</code>.
+     */
+    protected int at;
+    protected int begin;
+    protected int end;
+    
+    /**
+     * The low surrogate pending after a four bytes UTF-8 sequence.
+     */
+    private char low = 0;
+    
+    /**
+     * The characters of ASCII strings copied from <code>bytes</code>.
+     */
+    private char[] text = null;
+    
+    /**
+     * The names, indexes or positions of the names of the values being 
+     * evaluated, attached to errors as their path.
+     */
+    private java.lang.Object[] trail = EMPTY;
+    private int[] indexes = NONE;
+    private int depth = 0;
+    private static final java.lang.Object[] EMPTY = new java.lang.Object[0];
+    private static final int[] NONE = new int[0];
+    private static final java.lang.Object NAMED = new java.lang.Object();
+    
     /**
      * The maximum number of containers left to instanciate by this parser. 
      */
@@ -800,6 +1362,71 @@ public class JSON {
      */
     public int iterations = 65355;
     
+    /**
+     * The table of interned names of object members, if any. 
+     */
+    public Symbols symbols = null;
+    
+    /**
+     * Evaluate objects and arrays lazily, validating the whole source 
+     * but decoding values only when they are accessed.
+     * 
+     * @pre JSON json = new JSON();
+     *json.lazy = true;
+     *JSON.Object map = (JSON.Object) json.eval(body, 0, body.length);
+     *String name = map.getString("name");
+     * 
+     * @p The <code>LazyObject</code> and <code>LazyArray</code> returned 
+     * keep a reference to the source evaluated, they must not be updated 
+     * while its values are accessed. <code>JSONR</code> interpreters 
+     * validate their types eagerly and ignore this option.
+     */
+    public boolean lazy = false;
+    
+    /**
+     * The size from which UTF-8 encoded sources are evaluated by a 
+     * <code>JSONIndex</code> interpreter, or zero to never do so.
+     * 
+     * @pre JSON json = new JSON();
+     *json.structural = 16384;
+     *Object value = json.eval(body, 0, body.length);
+     * 
+     * @p The results, errors and limits left are the same.
+     */
+    public int structural = 0;
+    
+    /**
+     * The size from which a top-level array is split in chunks evaluated 
+     * in parallel by <code>threads</code>, or zero to never do so.
+     * 
+     * @pre JSON json = new JSON();
+     *json.parallel = 1048576;
+     *JSON.Array records = (JSON.Array) json.eval(body, 0, body.length);
+     * 
+     * @p The chunks are evaluated by daemon threads shared by all 
+     * interpreters, one per processor, or by the calling thread when 
+     * they are all busy. They draw the containers and iterations they 
+     * evaluate from the limits of this interpreter. The first error 
+     * found is thrown as it would be by this interpreter alone, with the 
+     * limits left by the chunks evaluated until then, sources
+     * that do not split cleanly between elements or that exceed the 
+     * limits are evaluated again by this interpreter alone, with the 
+     * same results and errors.
+     */
+    public int parallel = 0;
+    
+    /**
+     * The number of chunks of a top-level array evaluated in parallel, 
+     * the number of processors available by default.
+     */
+    public int threads = Runtime.getRuntime().availableProcessors();
+    
+    /**
+     * The limits shared with the interpreters of other chunks of the same
+     * source, if any.
+     */
+    protected Budget shared = null;
+    
     /**
      * Instanciate a JSON interpreter with limits set to 65355 on 
      * the number of containers and iterations.
@@ -835,20 +1462,81 @@ public class JSON {
      * @throws JSON.Error
      */
     public java.lang.Object eval(String json) throws Error {
-        buf = new StringBuffer();
-        it = new StringCharacterIterator(json);
+        char[] source = json.toCharArray();
+        scan(source, 0, source.length);
         try {
-            c = it.first();
-            if (c == _done)
-                throw error(NULL_JSON_STRING);
-            else
-                return value();
+            return eval();
         } finally {
-            buf = null;
-            it = null;
+            done();
+        }
+    }
+    
+    /**
+     * Evaluates <code>length</code> characters from <code>offset</code>
+     * as an untyped value.
+     * 
+     * @param chars to evaluate
+     * @param offset of the JSON text in <code>chars</code>
+     * @param length of the JSON text
+     * @return an untyped Object
+     * @throws JSON.Error
+     */
+    public java.lang.Object eval(char[] chars, int offset, int length) 
+    throws Error {
+        scan(chars, offset, length);
+        try {
+            return eval();
+        } finally {
+            done();
+        }
+    }
+    
+    /**
+     * Evaluates a UTF-8 encoded JSON text found in <code>length</code> 
+     * bytes from <code>offset</code>, scanning the bytes directly instead
+     * of decoding them first as a <code>String</code>.
+     * 
+     * @p Only non-ASCII characters are decoded, which in practice means
+     * the contents of strings, and malformed UTF-8 sequences are replaced
+     * by U+FFFD like <code>new String(bytes, "UTF-8")</code> 
+     * does.
+     * 
+     * @param bytes to evaluate
+     * @param offset of the JSON text in <code>bytes</code>
+     * @param length of the JSON text
+     * @return an untyped Object
+     * @throws JSON.Error
+     */
+    public java.lang.Object eval(byte[] bytes, int offset, int length) 
+    throws Error {
+        scan(bytes, offset, length);
+        try {
+            return eval();
+        } finally {
+            done();
         }
     }
     
+    /**
+     * Evaluates the UTF-8 encoded JSON text remaining in a 
+     * <code>ByteBuffer</code>, without moving its position.
+     * 
+     * @param bytes to evaluate
+     * @return an untyped Object
+     * @throws JSON.Error
+     */
+    public java.lang.Object eval(ByteBuffer bytes) throws Error {
+        if (bytes.hasArray())
+            return eval(
+                bytes.array(), 
+                bytes.arrayOffset() + bytes.position(), 
+                bytes.remaining()
+                );
+        byte[] copy = new byte[bytes.remaining()];
+        bytes.duplicate().get(copy);
+        return eval(copy, 0, copy.length);
+    }
+    
     /**
      * Evaluates a JSON object, returns a new <code>JSON.O</code>   
      * or throws a JSON.Error if the string does not represent a 
@@ -896,20 +1584,12 @@ public class JSON {
      * @return <code>null</code> or a <code>JSON.Error</code>
      */
     public Error update(Map map, String json) {
-        buf = new StringBuffer();
-        it = new StringCharacterIterator(json);
+        char[] source = json.toCharArray();
+        scan(source, 0, source.length);
         try {
-            c = it.first();
-            while (Character.isWhitespace(c)) c = it.next();
-            if (c == '{') {
-                c = it.next(); object(map); return null;
-            } else
-                return error(OBJECT_TYPE_ERROR);
-        } catch (Error e) {
-            return e;
+            return update(map);
         } finally {
-            buf = null;
-            it = null;
+            done();
         }
     }
     
@@ -923,43 +1603,273 @@ public class JSON {
      * @return <code>null</code> or a <code>JSON.Error</code>
      */
     public Error extend(List list, String json) {
-        buf = new StringBuffer();
-        it = new StringCharacterIterator(json);
+        char[] source = json.toCharArray();
+        scan(source, 0, source.length);
         try {
-            c = it.first();
-            while (Character.isWhitespace(c)) c = it.next();
-            if (c == '[') {
-                c = it.next(); array(list); return null;
-            } else
-                return error(ARRAY_TYPE_ERROR);
-        } catch (Error e) {
-            return e;
+            return extend(list);
         } finally {
-            buf = null;
-            it = null;
+            done();
         }
     }
     
-    protected final JSON.Error error(String message) {
-        return new JSON.Error(message, it.getIndex());
+    /**
+     * Validates a JSON <code>String</code> and returns the values found 
+     * at compiled <code>paths</code>, instanciating only the values 
+     * selected.
+     * 
+     * @param json <code>String</code> to evaluate
+     * @param paths compiled
+     * @return an array of values selected, <code>null</code> for the 
+     *         paths not found
+     * @throws JSON.Error
+     */
+    public java.lang.Object[] select(String json, Paths paths) 
+    throws Error {
+        char[] source = json.toCharArray();
+        scan(source, 0, source.length);
+        try {
+            return select(paths);
+        } finally {
+            done();
+        }
     }
     
-    protected final boolean next(char test) {
-        c = it.next();
-        return c == test;
+    /**
+     * Validates a UTF-8 encoded JSON text found in <code>length</code> 
+     * bytes from <code>offset</code> and returns the values found at 
+     * compiled <code>paths</code>.
+     * 
+     * @param bytes to evaluate
+     * @param offset of the JSON text in <code>bytes</code>
+     * @param length of the JSON text
+     * @param paths compiled
+     * @return an array of values selected, <code>null</code> for the 
+     *         paths not found
+     * @throws JSON.Error
+     */
+    public java.lang.Object[] select(
+        byte[] bytes, int offset, int length, Paths paths
+        ) throws Error {
+        scan(bytes, offset, length);
+        try {
+            return select(paths);
+        } finally {
+            done();
+        }
     }
     
-    protected static final java.lang.Object OBJECT = new java.lang.Object();
-    protected static final java.lang.Object ARRAY = new java.lang.Object();
-    protected static final java.lang.Object COLON = new java.lang.Object();
+    /**
+     * Start to scan <code>length</code> characters from <code>offset</code>.
+     */
+    protected final void scan(char[] source, int offset, int length) {
+        chars = source;
+        bytes = null;
+        begin = offset;
+        end = offset + length;
+        at = offset - 1;
+        depth = 0;
+        if (buf == null) 
+            buf = new StringBuffer();
+        next();
+    }
+    
+    /**
+     * Start to scan <code>length</code> UTF-8 encoded bytes from 
+     * <code>offset</code>.
+     */
+    protected final void scan(byte[] source, int offset, int length) {
+        chars = null;
+        bytes = source;
+        begin = offset;
+        end = offset + length;
+        at = offset - 1;
+        low = 0;
+        depth = 0;
+        if (buf == null) 
+            buf = new StringBuffer();
+        next();
+    }
+    
+    /**
+     * Release the source scanned and the string buffer if it grew larger 
+     * than <code>IO.netBufferSize</code>.
+     */
+    protected final void done() {
+        chars = null;
+        bytes = null;
+        if (buf != null && buf.capacity() > IO.netBufferSize)
+            buf = null;
+    }
+    
+    protected java.lang.Object eval() throws Error {
+        if (lazy)
+            return validate();
+        else if (
+            bytes != null && structural > 0 && end - begin >= structural
+            )
+            return JSONIndex.eval(this);
+        else if (c == _done)
+            throw error(NULL_JSON_STRING);
+        
+        if (parallel > 0 && end - begin >= parallel) {
+            java.lang.Object array = parallel();
+            if (array != null)
+                return array;
+        }
+        return value();
+    }
+    
+    protected Error update(Map map) {
+        try {
+            while (Character.isWhitespace(c)) next();
+            if (c == '{') {
+                next(); object(map); return null;
+            } else
+                return error(OBJECT_TYPE_ERROR);
+        } catch (Error e) {
+            return e;
+        }
+    }
+    
+    protected Error extend(List list) {
+        try {
+            while (Character.isWhitespace(c)) next();
+            if (c == '[') {
+                next(); array(list); return null;
+            } else
+                return error(ARRAY_TYPE_ERROR);
+        } catch (Error e) {
+            return e;
+        }
+    }
+    
+    /**
+     * Return the index of the current character relative to the begin 
+     * of the source scanned, the offset of the first byte of its UTF-8 
+     * sequence when scanning bytes.
+     */
+    protected final int index() {
+        int i = (at < end ? at: end);
+        if (bytes != null)
+            while (i > begin && i < end && (bytes[i] & 0xC0) == 0x80) i--;
+        return i - begin;
+    }
+    
+    protected final JSON.Error error(String message) {
+        return trail(new JSON.Error(message, index()));
+    }
+    
+    /**
+     * Attach the path of the value evaluated to an error, decoding the
+     * names which positions were pushed.
+     */
+    protected final JSON.Error trail(JSON.Error e) {
+        java.lang.Object name;
+        for (int i = depth - 1; i > -1; i--) {
+            name = trail[i];
+            if (name == null)
+                e.path(integer(indexes[i]));
+            else if (name == NAMED)
+                e.path(name(indexes[i]));
+            else
+                e.path(name);
+        }
+        return e;
+    }
+    
+    /**
+     * Push the name of a member or the <code>index</code> of an item, if 
+     * <code>name</code> is <code>null</code>, on the path evaluated.
+     */
+    protected final void push(java.lang.Object name, int index) {
+        if (depth == indexes.length) {
+            int L = (depth == 0 ? 16: depth * 2);
+            java.lang.Object[] t = new java.lang.Object[L];
+            int[] i = new int[L];
+            System.arraycopy(trail, 0, t, 0, depth);
+            System.arraycopy(indexes, 0, i, 0, depth);
+            trail = t;
+            indexes = i;
+        }
+        trail[depth] = name;
+        indexes[depth++] = index;
+    }
+    
+    protected final void pop() {
+        depth--;
+    }
+    
+    /**
+     * Move the cursor to the next character and return it, decoding
+     * UTF-8 multibyte sequences inline when scanning bytes.
+     */
+    protected final char next() {
+        if (bytes == null) {
+            if (++at < end) 
+                return c = chars[at];
+        } else if (low != 0) {
+            c = low;
+            low = 0;
+            return c;
+        } else if (++at < end) {
+            int b = bytes[at];
+            return c = (b < 0 ? utf8(b): (char) b);
+        }
+        at = end;
+        return c = _done;
+    }
+    
+    /**
+     * Decode the UTF-8 sequence led by <code>b</code>, leave the cursor 
+     * on its last byte and return the decoded character or 
+     * U+FFFD for a malformed sequence.
+     */
+    private final char utf8(int b) {
+        int n, u;
+        if ((b & 0xE0) == 0xC0) {
+            n = 1; u = b & 0x1F;
+        } else if ((b & 0xF0) == 0xE0) {
+            n = 2; u = b & 0x0F;
+        } else if ((b & 0xF8) == 0xF0) {
+            n = 3; u = b & 0x07;
+        } else
+            return '\uFFFD';
+        for (int i=0; i<n; i++) {
+            if (at + 1 == end || (bytes[at + 1] & 0xC0) != 0x80)
+                return '\uFFFD';
+            u = (u << 6) | (bytes[++at] & 0x3F);
+        }
+        switch (n) {
+        case 1: 
+            if (u < 0x80) return '\uFFFD'; 
+            break;
+        case 2: 
+            if (u < 0x800 || (u >= 0xD800 && u <= 0xDFFF)) return '\uFFFD';
+            break;
+        default: 
+            if (u < 0x10000 || u > 0x10FFFF) return '\uFFFD';
+            u = u - 0x10000;
+            low = (char) (0xDC00 | (u & 0x3FF));
+            return (char) (0xD800 | (u >>> 10));
+        }
+        return (char) u;
+    }
+    
+    protected final boolean next(char test) {
+        return next() == test;
+    }
+    
+    protected static final java.lang.Object OBJECT = new java.lang.Object();
+    protected static final java.lang.Object ARRAY = new java.lang.Object();
+    protected static final java.lang.Object COLON = new java.lang.Object();
     protected static final java.lang.Object COMMA = new java.lang.Object();
     
     protected final java.lang.Object value() throws Error {
-        while (Character.isWhitespace(c)) c = it.next();
+        while (Character.isWhitespace(c)) next();
         switch(c){
-        case '{': {c = it.next(); return object(new JSON.Object());}
-        case '[': {c = it.next(); return array(new JSON.Array());}
-        case '"': {c = it.next(); return string();}
+        case '{': {next(); return object(new JSON.Object());}
+        case '[': {next(); return array(new JSON.Array());}
+        case '"': {next(); return string();}
         case '0': case '1': case '2': case '3': case '4':  
         case '5': case '6': case '7': case '8': case '9': 
         case '-': {
@@ -967,26 +1877,26 @@ public class JSON {
             }
         case 't': {
             if (next('r') && next('u') && next('e')) {
-                c = it.next(); return Boolean.TRUE;
+                next(); return Boolean.TRUE;
             } else
                 throw error(TRUE_EXPECTED);
         }
         case 'f': {
             if (next('a') && next('l') && next('s') && next('e')) {
-                c = it.next(); return Boolean.FALSE;
+                next(); return Boolean.FALSE;
             } else
                 throw error(FALSE_EXPECTED);
         }
         case 'n': {
             if (next('u') && next('l') && next('l')) {
-                c = it.next(); return null;
+                next(); return null;
             } else
                 throw error(NULL_EXPECTED);
         }
-        case ',': {c = it.next(); return COMMA;} 
-        case ':': {c = it.next(); return COLON;}
-        case ']': {c = it.next(); return ARRAY;} 
-        case '}': {c = it.next(); return OBJECT;}
+        case ',': {next(); return COMMA;} 
+        case ':': {next(); return COLON;}
+        case ']': {next(); return ARRAY;} 
+        case '}': {next(); return OBJECT;}
         case _done:
             throw error(UNEXPECTED_END);
         default: 
@@ -995,35 +1905,31 @@ public class JSON {
     }
     
     protected final java.lang.Object value(String name) throws Error {
-        try {
-            return value();
-        } catch (JSON.Error e) {
-            e.jsonPath.add(0, name);
-            throw e;
-        }
+        push(name, 0);
+        java.lang.Object value = value();
+        pop();
+        return value;
     }
     
     protected final java.lang.Object value(int index) throws Error {
-        try {
-            return value();
-        } catch (JSON.Error e) {
-            e.jsonPath.add(0, new Integer(index));
-            throw e;
-        }
+        push(null, index);
+        java.lang.Object value = value();
+        pop();
+        return value;
     }
     
     protected final java.lang.Object object(Map o) throws Error {
-        if (--containers < 0) 
+        if (--containers < 0 && !budget())
             throw error(CONTAINERS_OVERFLOW);
         
         String name; 
         java.lang.Object val;
-        java.lang.Object token = value();
+        java.lang.Object token = member();
         while (token != OBJECT) {
             if (!(token instanceof String))
                 throw error(STRING_EXPECTED);
             
-            if (--iterations < 0) 
+            if (--iterations < 0 && !budget())
                 throw error(ITERATIONS_OVERFLOW);
             
             name = (String) token;
@@ -1035,7 +1941,7 @@ public class JSON {
                 o.put(name, val);
                 token = value();
                 if (token == COMMA)
-                    token = value();
+                    token = member();
             } else {
                 throw error(COLON_EXPECTED);
             }
@@ -1043,8 +1949,48 @@ public class JSON {
         return o;
     }
     
+    /**
+     * Scan the name of an object member or the next token, interning 
+     * names found without escape sequences straight from the source when
+     * a table of <code>symbols</code> is set.
+     */
+    protected final java.lang.Object member() throws Error {
+        while (Character.isWhitespace(c)) next();
+        if (c != '"' || symbols == null)
+            return value();
+        
+        int start = at + 1, hash = 0, i;
+        if (bytes == null) {
+            char ch;
+            for (i = start; i < end; i++) {
+                ch = chars[i];
+                if (ch == '"') {
+                    at = i;
+                    next();
+                    return symbols.intern(chars, start, i - start, hash);
+                } else if (ch == '\\')
+                    break;
+                hash = 31*hash + ch;
+            }
+        } else {
+            byte b;
+            for (i = start; i < end; i++) {
+                b = bytes[i];
+                if (b == '"') {
+                    at = i;
+                    next();
+                    return symbols.intern(bytes, start, i - start, hash);
+                } else if (b == '\\' || b < 0)
+                    break;
+                hash = 31*hash + b;
+            }
+        }
+        next();
+        return symbols.intern((String) string());
+    }
+    
     protected final java.lang.Object array(List a) throws Error {
-        if (--containers < 0) 
+        if (--containers < 0 && !budget())
             throw error(CONTAINERS_OVERFLOW);
         
         int i = 0;
@@ -1053,7 +1999,7 @@ public class JSON {
             if (token==COLON || token==COMMA || token==OBJECT)
                 throw error(VALUE_EXPECTED);
             
-            if (--iterations < 0) 
+            if (--iterations < 0 && !budget())
                 throw error(ITERATIONS_OVERFLOW);
             
             a.add(token);
@@ -1064,174 +2010,2529 @@ public class JSON {
         return a;
     }
     
-    protected final java.lang.Object number() {
-        buf.setLength(0);
-        if (c == '-') {
-            buf.append(c); c = it.next();
+    /**
+     * Draw more containers or iterations from the limits shared with 
+     * other interpreters when one of this interpreter's is exhausted, 
+     * return <code>false</code> if there are none left or none shared.
+     */
+    protected final boolean budget() {
+        return (shared != null && shared.draw(this));
+    }
+    
+    /**
+     * Limits shared by the interpreters of the chunks of a source, drawn 
+     * in batches.
+     */
+    protected static final class Budget {
+        protected static final int BATCH = 256;
+        protected int containers;
+        protected int iterations;
+        protected Budget(int containers, int iterations) {
+            this.containers = containers;
+            this.iterations = iterations;
         }
-        digits();
-        if (c == '.') {
-            buf.append(c); c = it.next();
-            digits();
-            if (c == 'e' || c == 'E') {
-                buf.append(c); c = it.next();
-                if (c == '+' || c == '-') {
-                    buf.append(c); c = it.next();
-                }
-                digits();
-                return new Double(buf.toString());
-            } else {
-                return new BigDecimal(buf.toString()); 
+        protected final synchronized boolean draw(JSON json) {
+            int n;
+            if (json.containers < 0) {
+                if (containers <= 0)
+                    return false;
+                
+                n = (containers < BATCH ? containers: BATCH);
+                containers -= n;
+                json.containers += n;
             }
-        } else if (c == 'e' || c == 'E') {
-            buf.append(c); c = it.next();
-            if (c == '+' || c == '-') {
-                buf.append(c); c = it.next();
+            if (json.iterations < 0) {
+                if (iterations <= 0)
+                    return false;
+                
+                n = (iterations < BATCH ? iterations: BATCH);
+                iterations -= n;
+                json.iterations += n;
             }
-            digits();
-            return new Double(buf.toString());
-        } else {
-            return new Integer(buf.toString());
+            return true;
+        }
+        protected final synchronized void refund(JSON json) {
+            if (json.containers > 0)
+                containers += json.containers;
+            if (json.iterations > 0)
+                iterations += json.iterations;
+            json.containers = json.iterations = 0;
         }
     }
     
-    protected final java.lang.Object string() throws Error {
-        buf.setLength(0);
-        while (c != '"') {
-            if (c == '\\') {
-                c = it.next(); 
-                switch(c) {
-                    case 'u': buf.append(unicode(4)); break;
-                    case 'x': buf.append(unicode(2)); break;
-                    case '\\': buf.append('\\'); break;
-                    case '"': buf.append('"'); break;
-                    case '/': buf.append('/'); break;
-                    case 'b': buf.append('\b'); break;
-                    case 'f': buf.append('\f'); break;
-                    case 'n': buf.append('\n'); break;
-                    case 'r': buf.append('\r'); break;
-                    case 't': buf.append('\t'); break;
-                    default: 
-                        throw error(ILLEGAL_ESCAPE_SEQUENCE);
+    /**
+     * The interpreter of a chunk of elements of a top-level array, from
+     * the element following <code>start</code> to the comma at 
+     * <code>stop</code> or to the end of the array.
+     * 
+     * @p Chunks forked are queued for a pool of daemon workers, one per
+     * processor, started when first needed. A chunk joined before a 
+     * worker took it is evaluated by the joining thread, so that the 
+     * number of threads stays bounded and a busy pool never delays an
+     * evaluation more than a sequential one.
+     */
+    protected static final class Chunk implements Runnable {
+        protected static final int WORKERS = 
+            Runtime.getRuntime().availableProcessors();
+        private static final ArrayList queue = new ArrayList();
+        private static int workers = 0;
+        private static int idle = 0;
+        protected final JSON json;
+        protected final int start;
+        protected final int stop;
+        protected final int index;
+        protected final JSON.Array items = new JSON.Array();
+        protected boolean done = false;
+        protected Error error = null;
+        private boolean finished = false;
+        protected Chunk(JSON json, int start, int stop, int index) {
+            this.json = json;
+            this.start = start;
+            this.stop = stop;
+            this.index = index;
+        }
+        public final void run() {
+            try {
+                json.seek(start + 1);
+                done = json.chunk(items, index, stop);
+            } catch (Error e) {
+                error = e;
+            } catch (Throwable e) {
+                done = false;
+            } finally {
+                json.shared.refund(json);
+                json.done();
+                synchronized (this) {
+                    finished = true;
+                    notifyAll();
+                }
+            }
+        }
+        /**
+         * Queue this chunk for the workers, starting one more if none is
+         * idle and there are less than <code>WORKERS</code>.
+         */
+        protected final void fork() {
+            synchronized (queue) {
+                queue.add(this);
+                if (idle < queue.size() && workers < WORKERS) {
+                    workers++;
+                    Thread worker = new Thread(new Worker());
+                    worker.setDaemon(true);
+                    worker.start();
+                }
+                queue.notify();
+            }
+        }
+        /**
+         * Evaluate this chunk if no worker took it yet or wait until its 
+         * worker finished, return <code>false</code> if interrupted.
+         */
+        protected final boolean join() {
+            if (cancel()) {
+                run();
+                return true;
+            }
+            synchronized (this) {
+                while (!finished) try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return true;
+        }
+        /**
+         * Remove this chunk from the queue, return <code>false</code> if 
+         * a worker took it.
+         */
+        protected final boolean cancel() {
+            synchronized (queue) {
+                return queue.remove(this);
+            }
+        }
+        private static final class Worker implements Runnable {
+            public final void run() {
+                Chunk chunk;
+                while (true) {
+                    synchronized (queue) {
+                        while (queue.isEmpty()) {
+                            idle++;
+                            try {
+                                queue.wait();
+                            } catch (InterruptedException e) {
+                                ;
+                            } finally {
+                                idle--;
+                            }
+                        }
+                        chunk = (Chunk) queue.remove(0);
+                    }
+                    chunk.run();
                 }
-            } else if (c == _done) {
-                throw error(UNEXPECTED_END);
-            } else {
-                buf.append(c); 
             }
-            c = it.next();
         }
-        c = it.next();
-        return buf.toString();
     }
     
-    protected final void digits() {
-        while (Character.isDigit(c)) {buf.append(c); c = it.next();}
+    /**
+     * Return a new interpreter of the same type for a chunk of the source
+     * evaluated in parallel.
+     */
+    protected JSON fork() {
+        return new JSON();
     }
     
-    protected final char unicode(int length) throws Error {
-        int val = 0;
-        for (int i = 0; i < length; ++i) {
-            c = it.next();
-            switch (c) {
-            case '0': case '1': case '2': case '3': case '4': 
-            case '5': case '6': case '7': case '8': case '9':
-                val = (val << 4) + c - '0';
+    /**
+     * Evaluate the element at <code>index</code> of an array split in 
+     * chunks.
+     */
+    protected java.lang.Object item(int index) throws Error {
+        return value(index);
+    }
+    
+    /**
+     * Evaluate the top-level array at the cursor in chunks split between
+     * threads, or return <code>null</code> with the cursor and limits 
+     * unchanged if it is not an array, if it could not be split or if one 
+     * of its chunks failed otherwise than with the first error in the
+     * source.
+     */
+    protected final java.lang.Object parallel() throws Error {
+        if (threads < 2)
+            return null;
+        
+        while (Character.isWhitespace(c)) next();
+        int start = at;
+        int[] stops = new int[threads - 1], indexes = new int[threads - 1];
+        if (c != '[' || !split(start, stops, indexes)) {
+            seek(start);
+            return null;
+        }
+        if (--containers < 0) {
+            containers++;
+            seek(start);
+            return null;
+        }
+        int containers = this.containers, iterations = this.iterations;
+        Budget budget = new Budget(containers, iterations);
+        Chunk[] chunks = new Chunk[stops.length + 1];
+        JSON json;
+        for (int i=0; i<chunks.length; i++) {
+            json = fork();
+            json.symbols = symbols;
+            json.containers = json.iterations = 0;
+            json.shared = budget;
+            if (bytes == null)
+                json.scan(chars, begin, end - begin);
+            else
+                json.scan(bytes, begin, end - begin);
+            chunks[i] = new Chunk(
+                json, 
+                (i == 0 ? start: stops[i - 1]), 
+                (i < stops.length ? stops[i]: Integer.MAX_VALUE), 
+                (i == 0 ? 0: indexes[i - 1])
+                );
+        }
+        for (int i=1; i<chunks.length; i++)
+            chunks[i].fork();
+        chunks[0].run();
+        Error error = null;
+        boolean done = chunks[0].done;
+        if (!done)
+            error = chunks[0].error;
+        for (int i=1; i<chunks.length; i++) {
+            if (!done) {
+                if (!chunks[i].cancel())
+                    chunks[i].join();
+            } else if (!chunks[i].join())
+                done = false;
+            else if (!chunks[i].done) {
+                done = false;
+                error = chunks[i].error;
+            }
+        }
+        if (error != null && !(
+            CONTAINERS_OVERFLOW.equals(error.getMessage()) ||
+            ITERATIONS_OVERFLOW.equals(error.getMessage())
+            )) {
+            this.containers = budget.containers;
+            this.iterations = budget.iterations;
+            throw error;
+        } else if (!done) {
+            this.containers++;
+            seek(start);
+            return null;
+        }
+        JSON.Array array = new JSON.Array();
+        for (int i=0; i<chunks.length; i++)
+            array.addAll(chunks[i].items);
+        this.containers = budget.containers;
+        this.iterations = budget.iterations;
+        at = end;
+        c = _done;
+        return array;
+    }
+    
+    /**
+     * Find the positions of the commas between top-level elements of the
+     * array opened at <code>start</code> that split it in chunks of about
+     * the same size and the indexes of the elements following them, 
+     * return <code>false</code> if there are not enough.
+     */
+    private final boolean split(int start, int[] stops, int[] indexes) {
+        int size = (end - start) / (stops.length + 1), next = start + size;
+        int count = 0, commas = 0, depth = 0, i;
+        boolean quoted = false;
+        char ch;
+        for (i = start + 1; i < end; i++) {
+            ch = (bytes == null ? chars[i]: (char) bytes[i]);
+            if (quoted) {
+                if (ch == '\\')
+                    i++;
+                else if (ch == '"')
+                    quoted = false;
+            } else switch (ch) {
+            case '"': 
+                quoted = true; 
                 break;
-            case 'a': case 'b': case 'c': case 'd': case 'e': case 'f':
-                val = (val << 4) + c - 'k';
+            case '{': case '[': 
+                depth++; 
                 break;
-            case 'A': case 'B': case 'C': case 'D': case 'E': case 'F':
-                val = (val << 4) + c - 'K';
+            case '}': case ']': 
+                if (--depth < 0)
+                    return false;
                 break;
-            case _done:
-                throw error(UNEXPECTED_END);
-            default:
-                throw error(ILLEGAL_UNICODE_SEQUENCE);
+            case ',':
+                if (depth > 0)
+                    break;
+                
+                commas++;
+                if (i >= next) {
+                    stops[count] = i;
+                    indexes[count] = commas;
+                    if (++count == stops.length)
+                        return true;
+                    
+                    next = i + size;
+                }
             }
         }
-        return (char) val;
+        return false;
     }
-
+    
     /**
-     * Instanciate a new <code>JSON.Object</code> with an even sequence
-     * of name and value pairs, a convenient way to express JSON literals
-     * in java.
-     * 
-     * @pre JSON.dict(new Object[]{
-     *     "hello", "world",
-     *     "one", new Integer(1),
-     *     "test", Boolean.TRUE 
-     *     });
-     * 
-     * @param pairs of key and values
-     * @return a new <code>JSON.Object</code>
+     * Evaluate the elements of a chunk like <code>array</code> does, 
+     * return <code>false</code> if the last one does not end at the comma
+     * at <code>stop</code> or if the array ends before, unless 
+     * <code>stop</code> is <code>Integer.MAX_VALUE</code> for the last 
+     * chunk.
      */
-    public static final JSON.Object dict (java.lang.Object[] pairs) {
-        JSON.Object result = new JSON.Object();
-        for (int i=0; i< pairs.length; i=i+2)
-            if (pairs[i] instanceof String)
-                result.put(pairs[i], pairs[i+1]);
-            else
-                result.put(pairs[i].toString(), pairs[i+1]);
-        return result;
-    };
+    protected final boolean chunk(List a, int i, int stop) throws Error {
+        java.lang.Object token = item(i++);
+        while (token != ARRAY) {
+            if (token==COLON || token==COMMA || token==OBJECT)
+                throw error(VALUE_EXPECTED);
+            
+            if (--iterations < 0 && !budget()) 
+                throw error(ITERATIONS_OVERFLOW);
+            
+            a.add(token);
+            while (Character.isWhitespace(c)) next();
+            if (at >= stop)
+                return (at == stop);
+            
+            token = value(); 
+            if (token == COMMA) 
+                token = item(i++);
+        }
+        return (stop == Integer.MAX_VALUE);
+    }
     
     /**
-     * Instanciate a new <code>JSON.Object</code> with an sequence
-     * of name and value String pairs, a convenience to map a 
-     * <code>String[][]</code> array of options to a dictionary.
-     * 
-     * @pre JSON.dict(new String[][]{
-     *     {"hello", "world"},
-     *     {"one", "1"},
-     *     {"test", "true"} 
-     *     });
-     * 
-     * @param pairs of key and values
-     * @return a new <code>JSON.Object</code>
+     * Validate the value at the cursor and return a new 
+     * <code>LazyObject</code> or <code>LazyArray</code> that keeps the 
+     * source scanned, or the value decoded if it is not a container.
      */
-    public static final JSON.Object options (String[][] pairs) {
-        JSON.Object result = new JSON.Object();
-        for (int i=0; i<pairs.length; i++) {
-            if (pairs[i].length > 1)
-                result.put(pairs[i][0], pairs[i][1]);
-            else
-                result.put(pairs[i][0], null);
+    protected final java.lang.Object validate() throws Error {
+        if (c == _done)
+            throw error(NULL_JSON_STRING);
+        
+        while (Character.isWhitespace(c)) next();
+        int start = at;
+        java.lang.Object token = token();
+        if (token != VALUE && token != STRING)
+            throw error(VALUE_EXPECTED);
+        
+        JSON document = new JSON(Integer.MAX_VALUE, Integer.MAX_VALUE);
+        document.symbols = symbols;
+        if (bytes == null)
+            document.scan(chars, begin, end - begin);
+        else
+            document.scan(bytes, begin, end - begin);
+        return document.decode(start);
+    }
+    
+    protected static final java.lang.Object VALUE = new java.lang.Object();
+    protected static final java.lang.Object STRING = new java.lang.Object();
+    
+    /**
+     * Validate the next token like <code>value</code> does, counting 
+     * containers and iterations, but without instanciating anything: 
+     * return <code>STRING</code> or <code>VALUE</code> for a string or 
+     * any other value and the same markers for punctuation.
+     */
+    protected final java.lang.Object token() throws Error {
+        while (Character.isWhitespace(c)) next();
+        switch(c){
+        case '{': {next(); skipObject(); return VALUE;}
+        case '[': {next(); skipArray(); return VALUE;}
+        case '"': {next(); skipString(); return STRING;}
+        case '0': case '1': case '2': case '3': case '4':  
+        case '5': case '6': case '7': case '8': case '9': 
+        case '-': {
+            skipNumber(); return VALUE;
+            }
+        case 't': {
+            if (next('r') && next('u') && next('e')) {
+                next(); return VALUE;
+            } else
+                throw error(TRUE_EXPECTED);
+        }
+        case 'f': {
+            if (next('a') && next('l') && next('s') && next('e')) {
+                next(); return VALUE;
+            } else
+                throw error(FALSE_EXPECTED);
+        }
+        case 'n': {
+            if (next('u') && next('l') && next('l')) {
+                next(); return VALUE;
+            } else
+                throw error(NULL_EXPECTED);
+        }
+        case ',': {next(); return COMMA;} 
+        case ':': {next(); return COLON;}
+        case ']': {next(); return ARRAY;} 
+        case '}': {next(); return OBJECT;}
+        case _done:
+            throw error(UNEXPECTED_END);
+        default: 
+            throw error(UNEXPECTED_CHARACTER);
+        }
+    }
+    
+    protected final void skipObject() throws Error {
+        if (--containers < 0) 
+            throw error(CONTAINERS_OVERFLOW);
+        
+        int name;
+        java.lang.Object token;
+        while (Character.isWhitespace(c)) next();
+        name = at;
+        token = token();
+        while (token != OBJECT) {
+            if (token != STRING)
+                throw error(STRING_EXPECTED);
+            
+            if (--iterations < 0) 
+                throw error(ITERATIONS_OVERFLOW);
+            
+            if (token() == COLON) {
+                push(NAMED, name);
+                token = token();
+                pop();
+                if (token != VALUE && token != STRING)
+                    throw error(VALUE_EXPECTED);
+                
+                while (Character.isWhitespace(c)) next();
+                name = at;
+                token = token();
+                if (token == COMMA) {
+                    while (Character.isWhitespace(c)) next();
+                    name = at;
+                    token = token();
+                }
+            } else {
+                throw error(COLON_EXPECTED);
+            }
+        }
+    }
+    
+    /**
+     * Decode the name validated at <code>start</code> to report the 
+     * path of an error, moving the cursor.
+     */
+    private final String name(int start) {
+        seek(start + 1);
+        try {
+            return (String) string();
+        } catch (Error e) {
+            return null;
+        }
+    }
+    
+    protected final void skipArray() throws Error {
+        if (--containers < 0) 
+            throw error(CONTAINERS_OVERFLOW);
+        
+        int i = 0;
+        java.lang.Object token = skip(i++);
+        while (token != ARRAY) {
+            if (token==COLON || token==COMMA || token==OBJECT)
+                throw error(VALUE_EXPECTED);
+            
+            if (--iterations < 0) 
+                throw error(ITERATIONS_OVERFLOW);
+            
+            token = token(); 
+            if (token == COMMA) 
+                token = skip(i++);
+        }
+    }
+    
+    private final java.lang.Object skip(int index) throws Error {
+        push(null, index);
+        java.lang.Object token = token();
+        pop();
+        return token;
+    }
+    
+    protected final void skipString() throws Error {
+        while (c != '"') {
+            if (c == '\\') {
+                next(); 
+                switch(c) {
+                    case 'u': unicode(4); break;
+                    case 'x': unicode(2); break;
+                    case '\\': case '"': case '/': 
+                    case 'b': case 'f': case 'n': case 'r': case 't': 
+                        break;
+                    default: 
+                        throw error(ILLEGAL_ESCAPE_SEQUENCE);
+                }
+            } else if (c == _done) {
+                throw error(UNEXPECTED_END);
+            }
+            next();
+        }
+        next();
+    }
+    
+    protected final void skipNumber() throws Error {
+        if (c == '-') 
+            next();
+        if (c < '0' || c > '9')
+            throw error(c == _done ? UNEXPECTED_END: UNEXPECTED_CHARACTER);
+        
+        while (c >= '0' && c <= '9') next();
+        if (c == '.') {
+            next();
+            while (c >= '0' && c <= '9') next();
+        }
+        if (c == 'e' || c == 'E') {
+            next();
+            if (c == '-' || c == '+') 
+                next();
+            if (c < '0' || c > '9')
+                throw error(c == _done ? UNEXPECTED_END: UNEXPECTED_CHARACTER);
+            
+            while (c >= '0' && c <= '9') next();
+        }
+    }
+    
+    protected final java.lang.Object[] select(Paths paths) throws Error {
+        if (c == _done)
+            throw error(NULL_JSON_STRING);
+        
+        java.lang.Object[] selected = new java.lang.Object[
+            paths.paths.length
+            ];
+        java.lang.Object token = select(paths.root, selected);
+        if (token != VALUE && token != STRING)
+            throw error(VALUE_EXPECTED);
+        
+        return selected;
+    }
+    
+    /**
+     * Validate the next token like <code>token</code> does, decoding only
+     * the values selected by a <code>step</code> and its children, or 
+     * throw an error if the value found is not of the type expected.
+     */
+    protected final java.lang.Object select(
+        Step step, java.lang.Object[] selected
+        ) throws Error {
+        while (Character.isWhitespace(c)) next();
+        if (step.slots != null) {
+            int start = index();
+            java.lang.Object value = value();
+            if (
+                value == COLON || value == COMMA || 
+                value == OBJECT || value == ARRAY
+                )
+                return value;
+            
+            try {
+                step.select(value, selected, start);
+            } catch (Error e) {
+                throw trail(e);
+            }
+            return VALUE;
+        }
+        if (step.names == null && step.items == null)
+            return token();
+        
+        switch(c){
+        case '{': 
+            if (step.names == null) 
+                throw error(ARRAY_TYPE_ERROR);
+            
+            next(); 
+            selectObject(step, selected); 
+            return VALUE;
+        case '[': 
+            if (step.items == null) 
+                throw error(OBJECT_TYPE_ERROR);
+            
+            next(); 
+            selectArray(step, selected); 
+            return VALUE;
+        case '"': case 't': case 'f': case '-':
+        case '0': case '1': case '2': case '3': case '4':  
+        case '5': case '6': case '7': case '8': case '9': 
+            throw error(
+                step.names == null ? ARRAY_TYPE_ERROR: OBJECT_TYPE_ERROR
+                );
+        default:
+            return token();
+        }
+    }
+    
+    protected final void selectObject(
+        Step step, java.lang.Object[] selected
+        ) throws Error {
+        if (--containers < 0) 
+            throw error(CONTAINERS_OVERFLOW);
+        
+        int name;
+        Step member;
+        java.lang.Object token;
+        while (Character.isWhitespace(c)) next();
+        name = at;
+        token = token();
+        while (token != OBJECT) {
+            if (token != STRING)
+                throw error(STRING_EXPECTED);
+            
+            if (--iterations < 0) 
+                throw error(ITERATIONS_OVERFLOW);
+            
+            member = member(step, name);
+            if (token() == COLON) {
+                push(NAMED, name);
+                if (member == null)
+                    token = token();
+                else
+                    token = select(member, selected);
+                pop();
+                if (token != VALUE && token != STRING)
+                    throw error(VALUE_EXPECTED);
+                
+                while (Character.isWhitespace(c)) next();
+                name = at;
+                token = token();
+                if (token == COMMA) {
+                    while (Character.isWhitespace(c)) next();
+                    name = at;
+                    token = token();
+                }
+            } else {
+                throw error(COLON_EXPECTED);
+            }
+        }
+    }
+    
+    /**
+     * Return the child of <code>step</code> selecting the member which 
+     * name was validated at <code>start</code>, comparing it in the source
+     * unless it has escape sequences or non ASCII characters.
+     */
+    private final Step member(Step step, int start) {
+        int i = start + 1;
+        if (bytes == null) {
+            while (chars[i] != '"')
+                if (chars[i++] == '\\')
+                    return step.member(decoded(start));
+        } else {
+            while (bytes[i] != '"')
+                if (bytes[i] < 0 || bytes[i++] == '\\')
+                    return step.member(decoded(start));
+        }
+        String[] names = step.names;
+        for (int j=0; j<names.length; j++)
+            if (matches(names[j], start + 1, i))
+                return step.members[j];
+        return null;
+    }
+    
+    private final boolean matches(String name, int start, int stop) {
+        int L = name.length();
+        if (L != stop - start)
+            return false;
+        
+        if (bytes == null) {
+            for (int i=0; i<L; i++)
+                if (chars[start + i] != name.charAt(i))
+                    return false;
+        } else {
+            for (int i=0; i<L; i++)
+                if (bytes[start + i] != name.charAt(i))
+                    return false;
+        }
+        return true;
+    }
+    
+    /**
+     * Decode the name validated at <code>start</code> without moving the
+     * cursor.
+     */
+    private final String decoded(int start) {
+        int at = this.at;
+        char c = this.c, low = this.low;
+        String name = name(start);
+        this.at = at;
+        this.c = c;
+        this.low = low;
+        return name;
+    }
+    
+    protected final void selectArray(
+        Step step, java.lang.Object[] selected
+        ) throws Error {
+        if (--containers < 0) 
+            throw error(CONTAINERS_OVERFLOW);
+        
+        int i = 0;
+        java.lang.Object token = select(step, i++, selected);
+        while (token != ARRAY) {
+            if (token==COLON || token==COMMA || token==OBJECT)
+                throw error(VALUE_EXPECTED);
+            
+            if (--iterations < 0) 
+                throw error(ITERATIONS_OVERFLOW);
+            
+            token = token(); 
+            if (token == COMMA) 
+                token = select(step, i++, selected);
+        }
+    }
+    
+    private final java.lang.Object select(
+        Step step, int index, java.lang.Object[] selected
+        ) throws Error {
+        Step item = step.item(index);
+        push(null, index);
+        java.lang.Object token = (
+            item == null ? token(): select(item, selected)
+            );
+        pop();
+        return token;
+    }
+    
+    /**
+     * Move the cursor to the character at the absolute index 
+     * <code>start</code>, the first byte of a sequence when scanning bytes.
+     */
+    protected final void seek(int start) {
+        at = start - 1;
+        low = 0;
+        next();
+    }
+    
+    /**
+     * Decode the value validated at <code>start</code>, a new lazy 
+     * container or a string, number, boolean or <code>null</code>.
+     */
+    protected final java.lang.Object decode(int start) {
+        seek(start);
+        switch (c) {
+        case '{': return new LazyObject(this, start);
+        case '[': return new LazyArray(this, start);
+        }
+        try {
+            return value();
+        } catch (Error e) {
+            throw new IllegalStateException(e.toString());
+        }
+    }
+    
+    /**
+     * Index the members of the object validated at <code>start</code>
+     * as slots to decode later.
+     */
+    protected final void index(LazyObject map, int start) {
+        seek(start);
+        next();
+        try {
+            java.lang.Object token = member();
+            while (token != OBJECT) {
+                value();
+                while (Character.isWhitespace(c)) next();
+                map.slot((String) token, at);
+                token();
+                token = value();
+                if (token == COMMA)
+                    token = member();
+            }
+        } catch (Error e) {
+            throw new IllegalStateException(e.toString());
+        }
+    }
+    
+    /**
+     * Index the items of the array validated at <code>start</code> as
+     * slots to decode later.
+     */
+    protected final void index(LazyArray list, int start) {
+        seek(start);
+        next();
+        try {
+            while (Character.isWhitespace(c)) next();
+            int item = at;
+            java.lang.Object token = token();
+            while (token != ARRAY) {
+                list.slot(item);
+                while (Character.isWhitespace(c)) next();
+                item = at;
+                token = token();
+                if (token == COMMA) {
+                    while (Character.isWhitespace(c)) next();
+                    item = at;
+                    token = token();
+                }
+            }
+        } catch (Error e) {
+            throw new IllegalStateException(e.toString());
+        }
+    }
+    
+    /**
+     * Cached <code>Integer</code> instances from -128 to 1023.
+     */
+    protected static final Integer[] INTEGERS = new Integer[1152];
+    static {
+        for (int i=0; i<INTEGERS.length; i++) 
+            INTEGERS[i] = new Integer(i - 128);
+    }
+    
+    /**
+     * Return a cached <code>Integer</code> for small values or a new one.
+     * 
+     * @param i the integer value
+     * @return an <code>Integer</code>
+     */
+    public static final Integer integer(int i) {
+        if (i >= -128 && i < 1024)
+            return INTEGERS[i + 128];
+        else
+            return new Integer(i);
+    }
+    
+    protected static final double[] POWERS = new double[]{
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+        };
+    
+    /**
+     * Scan a number, accumulating up to 18 significant digits in a long
+     * and returning a cached or new <code>Integer</code>, a 
+     * <code>Long</code> or a <code>BigInteger</code> for integers, a 
+     * <code>BigDecimal</code> for decimals and a <code>Double</code> for
+     * numbers with an exponent. The text of the number is converted only
+     * for the long ones, doubles are converted from their significand.
+     */
+    protected final java.lang.Object number() throws Error {
+        int start = at, digits = 0, scale = 0, exponent = 0, dropped = 0;
+        long value = 0;
+        boolean negative = (c == '-');
+        if (negative) 
+            next();
+        if (c < '0' || c > '9')
+            throw error(c == _done ? UNEXPECTED_END: UNEXPECTED_CHARACTER);
+        
+        while (c >= '0' && c <= '9') {
+            if (digits < 18) {
+                value = value * 10 + (c - '0');
+                if (value > 0) digits++;
+            } else {
+                digits++;
+                dropped++;
+            }
+            next();
+        }
+        if (c == '.') {
+            next();
+            while (c >= '0' && c <= '9') {
+                if (digits < 18) {
+                    value = value * 10 + (c - '0');
+                    if (value > 0) digits++;
+                    scale++;
+                } else 
+                    digits++;
+                next();
+            }
+        } else if (c != 'e' && c != 'E') {
+            if (digits > 18) {
+                BigInteger big = new BigInteger(source(start));
+                if (big.bitLength() < 64)
+                    return new Long(big.longValue());
+                else
+                    return big;
+            }
+            
+            if (negative)
+                value = -value;
+            if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE)
+                return integer((int) value);
+            else
+                return new Long(value);
+        }
+        if (c == 'e' || c == 'E') {
+            next();
+            boolean minus = (c == '-');
+            if (minus || c == '+') 
+                next();
+            if (c < '0' || c > '9')
+                throw error(c == _done ? UNEXPECTED_END: UNEXPECTED_CHARACTER);
+            
+            while (c >= '0' && c <= '9') {
+                if (exponent < 10000)
+                    exponent = exponent * 10 + (c - '0');
+                next();
+            }
+            if (minus)
+                exponent = -exponent;
+            return new Double(real(
+                value, digits, exponent - scale + dropped, negative, start
+                ));
+        } else if (digits > 18)
+            return new BigDecimal(source(start));
+        else
+            return BigDecimal.valueOf(negative ? -value: value, scale);
+    }
+    
+    /**
+     * Scan the integral digits of a number as a primitive long, without 
+     * an intermediate <code>Number</code>, saturated beyond 18 digits. A
+     * fraction or an exponent is left at the cursor for the caller.
+     */
+    protected final long integral() throws Error {
+        int digits = 0;
+        long value = 0;
+        boolean negative = (c == '-');
+        if (negative) 
+            next();
+        if (c < '0' || c > '9')
+            throw error(c == _done ? UNEXPECTED_END: UNEXPECTED_CHARACTER);
+        
+        while (c >= '0' && c <= '9') {
+            if (++digits > 18)
+                value = Long.MAX_VALUE;
+            else
+                value = value * 10 + (c - '0');
+            next();
+        }
+        return (negative ? -value: value);
+    }
+    
+    /**
+     * Scan a number as a primitive double, the nearest to its decimal 
+     * value, without an intermediate <code>Number</code> or text.
+     */
+    protected final double real() throws Error {
+        int start = at, digits = 0, scale = 0, exponent = 0, dropped = 0;
+        long value = 0;
+        boolean negative = (c == '-');
+        if (negative) 
+            next();
+        if (c < '0' || c > '9')
+            throw error(c == _done ? UNEXPECTED_END: UNEXPECTED_CHARACTER);
+        
+        while (c >= '0' && c <= '9') {
+            if (digits < 18) {
+                value = value * 10 + (c - '0');
+                if (value > 0) digits++;
+            } else {
+                digits++;
+                dropped++;
+            }
+            next();
+        }
+        if (c == '.') {
+            next();
+            while (c >= '0' && c <= '9') {
+                if (digits < 18) {
+                    value = value * 10 + (c - '0');
+                    if (value > 0) digits++;
+                    scale++;
+                } else 
+                    digits++;
+                next();
+            }
+        }
+        if (c == 'e' || c == 'E') {
+            next();
+            boolean minus = (c == '-');
+            if (minus || c == '+') 
+                next();
+            if (c < '0' || c > '9')
+                throw error(c == _done ? UNEXPECTED_END: UNEXPECTED_CHARACTER);
+            
+            while (c >= '0' && c <= '9') {
+                if (exponent < 10000)
+                    exponent = exponent * 10 + (c - '0');
+                next();
+            }
+            if (minus)
+                exponent = -exponent;
+        } else if (value == 0)
+            return 0.0; // integers and decimals have no negative zero
+        
+        return real(value, digits, exponent - scale + dropped, negative, start);
+    }
+    
+    /**
+     * Convert the significand of a number scanned from <code>start</code>,
+     * its count of digits and its decimal exponent to the nearest double,
+     * exactly for the short ones, with the Eisel-Lemire algorithm for the
+     * others or else from the source text.
+     * 
+     * @p A significand truncated to 18 digits is converted twice, as is 
+     * and plus one, in order to bound the digits truncated.
+     */
+    protected final double real(
+        long value, int digits, int exponent, boolean negative, int start
+        ) {
+        double d;
+        if (digits <= 15 && exponent >= -22 && exponent <= 22) {
+            d = (double) value;
+            if (exponent < 0)
+                d = d / POWERS[-exponent];
+            else
+                d = d * POWERS[exponent];
+        } else {
+            d = Decimal.parse(value, exponent);
+            if (digits > 18 && d != Decimal.parse(value + 1, exponent))
+                d = Double.NaN;
+            if (d != d)
+                return Double.parseDouble(source(start));
+        }
+        return (negative ? -d: d);
+    }
+    
+    /**
+     * Return the ASCII source text scanned from <code>start</code> to the
+     * current character. 
+     */
+    protected final String source(int start) {
+        int end = (at < this.end ? at: this.end);
+        if (bytes == null)
+            return new String(chars, start, end - start);
+        
+        return ascii(start, end);
+    }
+    
+    /**
+     * Return the ASCII bytes from <code>start</code> to <code>stop</code>
+     * as a string, widened in a buffer kept by this interpreter.
+     */
+    protected final String ascii(int start, int stop) {
+        int length = stop - start;
+        if (text == null || text.length < length)
+            text = new char[(length < 64 ? 64: length)];
+        for (int i=0; i<length; i++)
+            text[i] = (char) bytes[start + i];
+        return new String(text, 0, length);
+    }
+    
+    /**
+     * Decode a string opened before the current character, copying it in
+     * bulk up to its closing quote when it has no escape sequence (and, 
+     * in UTF-8 bytes, no multibyte sequence) or else its leading run
+     * before decoding the rest one character at a time.
+     */
+    protected final java.lang.Object string() throws Error {
+        int start = at, i = start;
+        if (low == 0) {
+            if (bytes == null) {
+                char ch;
+                for (; i < end; i++) {
+                    ch = chars[i];
+                    if (ch == '"' || ch == '\\') break;
+                }
+                if (i < end && chars[i] == '"') {
+                    at = i;
+                    next();
+                    return new String(chars, start, i - start);
+                }
+                buf.setLength(0);
+                buf.append(chars, start, i - start);
+            } else {
+                byte b;
+                for (; i < end; i++) {
+                    b = bytes[i];
+                    if (b == '"' || b == '\\' || b < 0) break;
+                }
+                if (i < end && bytes[i] == '"') {
+                    at = i;
+                    next();
+                    return ascii(start, i);
+                }
+                buf.setLength(0);
+                for (int j = start; j < i; j++)
+                    buf.append((char) bytes[j]);
+            }
+            if (i > start)
+                seek(i);
+        } else
+            buf.setLength(0);
+        while (c != '"') {
+            if (c == '\\') {
+                next(); 
+                switch(c) {
+                    case 'u': buf.append(unicode(4)); break;
+                    case 'x': buf.append(unicode(2)); break;
+                    case '\\': buf.append('\\'); break;
+                    case '"': buf.append('"'); break;
+                    case '/': buf.append('/'); break;
+                    case 'b': buf.append('\b'); break;
+                    case 'f': buf.append('\f'); break;
+                    case 'n': buf.append('\n'); break;
+                    case 'r': buf.append('\r'); break;
+                    case 't': buf.append('\t'); break;
+                    default: 
+                        throw error(ILLEGAL_ESCAPE_SEQUENCE);
+                }
+            } else if (c == _done) {
+                throw error(UNEXPECTED_END);
+            } else {
+                buf.append(c); 
+            }
+            next();
+        }
+        next();
+        return buf.toString();
+    }
+    
+    protected final char unicode(int length) throws Error {
+        int val = 0;
+        for (int i = 0; i < length; ++i) {
+            next();
+            switch (c) {
+            case '0': case '1': case '2': case '3': case '4': 
+            case '5': case '6': case '7': case '8': case '9':
+                val = (val << 4) + c - '0';
+                break;
+            case 'a': case 'b': case 'c': case 'd': case 'e': case 'f':
+                val = (val << 4) + c - 'a' + 10;
+                break;
+            case 'A': case 'B': case 'C': case 'D': case 'E': case 'F':
+                val = (val << 4) + c - 'A' + 10;
+                break;
+            case _done:
+                throw error(UNEXPECTED_END);
+            default:
+                throw error(ILLEGAL_UNICODE_SEQUENCE);
+            }
+        }
+        return (char) val;
+    }
+    
+    /**
+     * A pull interpreter of UTF-8 encoded JSON read from an 
+     * <code>InputStream</code> one token at a time through a fixed size 
+     * buffer, with the same limits on containers and iterations as 
+     * <code>JSON</code> and a limit on the length of strings and numbers.
+     * 
+     * @p Large arrays of records can be processed one record at a time, 
+     * without holding the whole text or tree in memory:
+     * 
+     * @pre JSON.Reader reader = new JSON.Reader(in);
+     *if (reader.next() == JSON.Reader.START_ARRAY)
+     *    while (reader.next() != JSON.Reader.END_ARRAY)
+     *        process(reader.value());
+     * 
+     * @p Errors are reported as <code>JSON.Error</code> indexed by their
+     * byte offset in the stream, with the path of the value being read.
+     */
+    public static class Reader {
+        public static final int END = 0;
+        public static final int START_OBJECT = 1;
+        public static final int END_OBJECT = 2;
+        public static final int START_ARRAY = 3;
+        public static final int END_ARRAY = 4;
+        public static final int NAME = 5;
+        public static final int VALUE = 6;
+        
+        private static final int _VALUE = 0;
+        private static final int _FIRST = 1;
+        private static final int _MEMBER = 2;
+        private static final int _NAME = 3;
+        private static final int _NEXT = 4;
+        private static final int _DONE = 5;
+        
+        /**
+         * The maximum number of containers left to read. 
+         */
+        public int containers = 65355;
+        
+        /**
+         * The maximum number of iterations left to read. 
+         */
+        public int iterations = 65355;
+        
+        /**
+         * The maximum number of characters of a string or number read.
+         */
+        public int limit = 1048576;
+        
+        protected InputStream in;
+        protected byte[] buffer;
+        protected int pos = 0, lim = 0, offset = 0;
+        protected StringBuffer buf = new StringBuffer();
+        protected int state = _VALUE;
+        protected int token = END;
+        protected String name = null;
+        protected java.lang.Object value = null;
+        protected int depth = 0;
+        protected boolean[] objects = new boolean[16];
+        protected String[] names = new String[16];
+        protected int[] indexes = new int[16];
+        
+        /**
+         * Read JSON from an input stream through a buffer of 
+         * <code>IO.netBufferSize</code> bytes, with limits set to 65355 
+         * on the number of containers and iterations.
+         * 
+         * @param in the <code>InputStream</code> to read from
+         */
+        public Reader(InputStream in) {
+            this.in = in;
+            this.buffer = new byte[IO.netBufferSize];
+        }
+        
+        /**
+         * Read JSON from an input stream through a buffer of 
+         * <code>size</code> bytes, with the given limits on the number 
+         * of containers and iterations.
+         * 
+         * @param in the <code>InputStream</code> to read from
+         * @param size of the read buffer
+         * @param containers a limit on the number of objects and arrays
+         * @param iterations a limit on the total count of values
+         */
+        public Reader(
+            InputStream in, int size, int containers, int iterations
+            ) {
+            this.in = in;
+            this.buffer = new byte[(size > 0 ? size: IO.netBufferSize)];
+            this.containers = (containers > 0 ? containers: 1);
+            this.iterations = (iterations > 0 ? iterations: 1);
+        }
+        
+        /**
+         * Read the next token, one of <code>START_OBJECT</code>, 
+         * <code>NAME</code>, <code>VALUE</code>, <code>END_OBJECT</code>,
+         * <code>START_ARRAY</code>, <code>END_ARRAY</code> or 
+         * <code>END</code> once a complete value was read.
+         * 
+         * @return the token read
+         * @throws Error
+         * @throws IOException
+         */
+        public int next() throws Error, IOException {
+            int b;
+            while (true) {
+                b = peek();
+                switch (state) {
+                case _DONE:
+                    return token = END;
+                case _NEXT:
+                    if (b == ',') {
+                        pos++;
+                        state = (objects[depth-1] ? _NAME: _VALUE);
+                        continue;
+                    } else if (b == (objects[depth-1] ? '}': ']')) {
+                        pos++;
+                        return close();
+                    } else if (b < 0)
+                        throw error(UNEXPECTED_END);
+                    else
+                        throw error(UNEXPECTED_CHARACTER);
+                case _MEMBER:
+                    if (b == '}') {
+                        pos++;
+                        return close();
+                    }
+                    state = _NAME;
+                    continue;
+                case _NAME:
+                    if (b != '"')
+                        throw error((b < 0) ? UNEXPECTED_END: STRING_EXPECTED);
+                    
+                    if (--iterations < 0) 
+                        throw error(ITERATIONS_OVERFLOW);
+                    
+                    pos++;
+                    name = names[depth-1] = string();
+                    if (peek() != ':')
+                        throw error(COLON_EXPECTED);
+                    
+                    pos++;
+                    value = null;
+                    state = _VALUE;
+                    return token = NAME;
+                case _FIRST:
+                    if (b == ']') {
+                        pos++;
+                        return close();
+                    }
+                    state = _VALUE;
+                    continue;
+                default:
+                    if (depth > 0 && !objects[depth-1]) {
+                        if (--iterations < 0) 
+                            throw error(ITERATIONS_OVERFLOW);
+                        
+                        indexes[depth-1]++;
+                    }
+                    return open(b);
+                }
+            }
+        }
+        
+        /**
+         * Return the name just read, the value just read or the object 
+         * or array just opened, consuming all its tokens.
+         * 
+         * @return the current value
+         * @throws Error
+         * @throws IOException
+         */
+        public java.lang.Object value() throws Error, IOException {
+            switch (token) {
+            case NAME:
+                return name;
+            case VALUE:
+                return value;
+            case START_OBJECT: {
+                String member;
+                JSON.Object o = new JSON.Object();
+                while (next() == NAME) {
+                    member = name;
+                    next();
+                    o.put(member, value());
+                }
+                return o;
+            }
+            case START_ARRAY: {
+                JSON.Array a = new JSON.Array();
+                while (next() != END_ARRAY)
+                    a.add(value());
+                return a;
+            }
+            default:
+                return null;
+            }
+        }
+        
+        /**
+         * Skip all tokens of the object or array just opened.
+         * 
+         * @throws Error
+         * @throws IOException
+         */
+        public void skip() throws Error, IOException {
+            if (token == START_OBJECT || token == START_ARRAY) {
+                int d = depth;
+                while (depth >= d) next();
+            }
+        }
+        
+        /**
+         * @return the number of objects and arrays opened
+         */
+        public int depth() {
+            return depth;
+        }
+        
+        /**
+         * @return the number of bytes read so far
+         */
+        public int index() {
+            return offset + pos;
+        }
+        
+        protected final JSON.Error error(String message) {
+            JSON.Error e = new JSON.Error(message, offset + pos);
+            for (int i = depth - 1; i > -1; i--)
+                if (!objects[i])
+                    e.path(integer(indexes[i]));
+                else if (names[i] != null)
+                    e.path(names[i]);
+            return e;
+        }
+        
+        protected final boolean fill() throws IOException {
+            offset += lim;
+            pos = lim = 0;
+            int read = in.read(buffer, 0, buffer.length);
+            if (read > 0) {
+                lim = read;
+                return true;
+            } else
+                return false;
+        }
+        
+        protected final int read() throws IOException {
+            if (pos == lim && !fill())
+                return -1;
+            return buffer[pos++] & 0xFF;
+        }
+        
+        protected final int peek() throws IOException {
+            int b;
+            while (true) {
+                if (pos == lim && !fill())
+                    return -1;
+                b = buffer[pos];
+                if (b == ' ' || b == '\n' || b == '\r' || b == '\t')
+                    pos++;
+                else
+                    return b & 0xFF;
+            }
+        }
+        
+        protected final int open(int b) throws Error, IOException {
+            switch (b) {
+            case '{': 
+            case '[': {
+                if (--containers < 0) 
+                    throw error(CONTAINERS_OVERFLOW);
+                
+                pos++;
+                if (depth == objects.length) {
+                    int L = depth * 2;
+                    boolean[] o = new boolean[L];
+                    String[] n = new String[L];
+                    int[] i = new int[L];
+                    System.arraycopy(objects, 0, o, 0, depth);
+                    System.arraycopy(names, 0, n, 0, depth);
+                    System.arraycopy(indexes, 0, i, 0, depth);
+                    objects = o;
+                    names = n;
+                    indexes = i;
+                }
+                objects[depth] = (b == '{');
+                names[depth] = null;
+                indexes[depth] = -1;
+                depth++;
+                if (b == '{') {
+                    state = _MEMBER;
+                    return token = START_OBJECT;
+                } else {
+                    state = _FIRST;
+                    return token = START_ARRAY;
+                }
+            }
+            case '"': 
+                pos++; 
+                value = string(); 
+                break;
+            case '0': case '1': case '2': case '3': case '4':  
+            case '5': case '6': case '7': case '8': case '9': 
+            case '-': 
+                value = number(); 
+                break;
+            case 't': 
+                literal("true", TRUE_EXPECTED); 
+                value = Boolean.TRUE; 
+                break;
+            case 'f': 
+                literal("false", FALSE_EXPECTED); 
+                value = Boolean.FALSE; 
+                break;
+            case 'n': 
+                literal("null", NULL_EXPECTED); 
+                value = null; 
+                break;
+            case -1:
+                throw error(UNEXPECTED_END);
+            case ',': case ':': case ']': case '}': 
+                throw error(VALUE_EXPECTED);
+            default: 
+                throw error(UNEXPECTED_CHARACTER);
+            }
+            state = (depth == 0 ? _DONE: _NEXT);
+            return token = VALUE;
+        }
+        
+        protected final int close() {
+            depth--;
+            state = (depth == 0 ? _DONE: _NEXT);
+            return token = (objects[depth] ? END_OBJECT: END_ARRAY);
+        }
+        
+        protected final void literal(String expected, String message) 
+        throws Error, IOException {
+            for (int i=0, L=expected.length(); i<L; i++)
+                if (read() != expected.charAt(i))
+                    throw error(message);
+        }
+        
+        protected final java.lang.Object number() 
+        throws Error, IOException {
+            boolean decimal = false, exponent = false;
+            buf.setLength(0);
+            int b;
+            while (true) {
+                if (pos == lim && !fill())
+                    break;
+                b = buffer[pos];
+                if (b >= '0' && b <= '9' || b == '-' || b == '+')
+                    ;
+                else if (b == '.')
+                    decimal = true;
+                else if (b == 'e' || b == 'E')
+                    exponent = true;
+                else
+                    break;
+                if (buf.length() == limit)
+                    throw error(VALUE_OVERFLOW);
+                
+                buf.append((char) b);
+                pos++;
+            }
+            try {
+                return numeric(buf.toString(), decimal, exponent);
+            } catch (NumberFormatException e) {
+                throw error(UNEXPECTED_CHARACTER);
+            }
+        }
+        
+        protected final String string() throws Error, IOException {
+            buf.setLength(0);
+            int b, u, n, k;
+            while (true) {
+                if (buf.length() > limit)
+                    throw error(VALUE_OVERFLOW);
+                
+                b = read();
+                if (b == '"')
+                    return buf.toString();
+                else if (b == '\\') {
+                    switch (read()) {
+                    case 'u': buf.append(unicode(4)); break;
+                    case 'x': buf.append(unicode(2)); break;
+                    case '\\': buf.append('\\'); break;
+                    case '"': buf.append('"'); break;
+                    case '/': buf.append('/'); break;
+                    case 'b': buf.append('\b'); break;
+                    case 'f': buf.append('\f'); break;
+                    case 'n': buf.append('\n'); break;
+                    case 'r': buf.append('\r'); break;
+                    case 't': buf.append('\t'); break;
+                    case -1: throw error(UNEXPECTED_END);
+                    default: throw error(ILLEGAL_ESCAPE_SEQUENCE);
+                    }
+                } else if (b < 0x80) {
+                    if (b < 0) 
+                        throw error(UNEXPECTED_END);
+                    buf.append((char) b);
+                } else {
+                    if ((b & 0xE0) == 0xC0) {
+                        n = 1; u = b & 0x1F;
+                    } else if ((b & 0xF0) == 0xE0) {
+                        n = 2; u = b & 0x0F;
+                    } else if ((b & 0xF8) == 0xF0) {
+                        n = 3; u = b & 0x07;
+                    } else {
+                        buf.append('\uFFFD'); 
+                        continue;
+                    }
+                    k = n;
+                    while (n > 0) {
+                        if (pos == lim && !fill())
+                            throw error(UNEXPECTED_END);
+                        b = buffer[pos];
+                        if ((b & 0xC0) != 0x80)
+                            break;
+                        u = (u << 6) | (b & 0x3F);
+                        pos++;
+                        n--;
+                    }
+                    if (
+                        n > 0 
+                        || u < (k == 1 ? 0x80: (k == 2 ? 0x800: 0x10000))
+                        || u > 0x10FFFF 
+                        || (u >= 0xD800 && u <= 0xDFFF)
+                        )
+                        buf.append('\uFFFD');
+                    else if (u >= 0x10000) {
+                        u = u - 0x10000;
+                        buf.append((char) (0xD800 | (u >>> 10)));
+                        buf.append((char) (0xDC00 | (u & 0x3FF)));
+                    } else
+                        buf.append((char) u);
+                }
+            }
+        }
+        
+        protected final char unicode(int length) throws Error, IOException {
+            int val = 0, b;
+            for (int i = 0; i < length; ++i) {
+                b = read();
+                if (b >= '0' && b <= '9')
+                    val = (val << 4) + b - '0';
+                else if (b >= 'a' && b <= 'f')
+                    val = (val << 4) + b - 'a' + 10;
+                else if (b >= 'A' && b <= 'F')
+                    val = (val << 4) + b - 'A' + 10;
+                else if (b < 0)
+                    throw error(UNEXPECTED_END);
+                else
+                    throw error(ILLEGAL_UNICODE_SEQUENCE);
+            }
+            return (char) val;
+        }
+    }
+    
+    /**
+     * A push interpreter of UTF-8 encoded JSON fed in chunks of any size,
+     * as non-blocking I/O delivers them, that evaluates each complete 
+     * value with a <code>JSON</code> or <code>JSONR</code> interpreter.
+     * 
+     * @pre JSON.Feed feed = new JSON.Feed(new JSONR(type));
+     *while (channel.read(buffer) > -1) {
+     *    buffer.flip();
+     *    Iterator values = feed.feed(buffer).iterator();
+     *    while (values.hasNext())
+     *        process(values.next());
+     *    buffer.clear();
+     *}
+     *Object last = feed.finish();
+     * 
+     * @p The feed keeps the bytes of the value being fed and scans only 
+     * the new ones to find its end, counting its containers and members 
+     * against the limits left to the interpreter and its bytes against
+     * the feed's own <code>limit</code>. Values are evaluated with the same
+     * limits, types and errors as by <code>eval</code>, errors are indexed
+     * by their byte offset in the stream. A feed that threw an error must
+     * be discarded.
+     */
+    public static class Feed {
+        
+        /**
+         * The interpreter of the values fed.
+         */
+        public final JSON interpreter;
+        
+        /**
+         * The maximum length in bytes of a value fed.
+         */
+        public final int limit;
+        
+        protected byte[] buffer = new byte[1024];
+        protected int length = 0;
+        protected int scanned = 0;
+        protected int start = -1;
+        protected int offset = 0;
+        protected int depth = 0;
+        protected int containers = 0;
+        protected int iterations = 0;
+        protected boolean[] objects = new boolean[16];
+        protected boolean quoted = false;
+        protected boolean escaped = false;
+        protected java.lang.Object last = null;
+        protected boolean fed = false;
+        
+        /**
+         * Feed JSON to an interpreter, which limits apply to all values 
+         * fed unless it is reset, with values of up to 1MB.
+         * 
+         * @param interpreter a <code>JSON</code> or <code>JSONR</code> 
+         *        interpreter
+         */
+        public Feed(JSON interpreter) {
+            this(interpreter, 1048576);
+        }
+        
+        /**
+         * Feed JSON to an interpreter, which limits apply to all values 
+         * fed unless it is reset, with values of up to <code>limit</code>
+         * bytes.
+         * 
+         * @param interpreter a <code>JSON</code> or <code>JSONR</code> 
+         *        interpreter
+         * @param limit on the length of a value
+         */
+        public Feed(JSON interpreter, int limit) {
+            this.interpreter = interpreter;
+            this.limit = (limit > 0 ? limit: 1);
+        }
+        
+        /**
+         * Feed the bytes remaining in a buffer, return the values they 
+         * completed.
+         * 
+         * @param bytes to consume
+         * @return a list of values, maybe empty
+         * @throws JSON.Error
+         */
+        public List feed(ByteBuffer bytes) throws Error {
+            int n = bytes.remaining();
+            if (length + n > buffer.length) {
+                int size = buffer.length * 2;
+                while (size < length + n) size = size * 2;
+                byte[] grown = new byte[size];
+                System.arraycopy(buffer, 0, grown, 0, length);
+                buffer = grown;
+            }
+            bytes.get(buffer, length, n);
+            length += n;
+            List values = null;
+            byte b;
+            for (int i = scanned; i < length; i++) {
+                b = buffer[i];
+                if (quoted) {
+                    if (escaped)
+                        escaped = false;
+                    else if (b == '\\')
+                        escaped = true;
+                    else if (b == '"') {
+                        quoted = false;
+                        if (depth == 0)
+                            values = value(i + 1, values);
+                    }
+                    continue;
+                }
+                switch (b) {
+                case '"':
+                    if (depth == 0) {
+                        if (start > -1)
+                            values = value(i, values);
+                        start = i;
+                    }
+                    quoted = true;
+                    break;
+                case '{': case '[':
+                    if (depth == 0) {
+                        if (start > -1)
+                            values = value(i, values);
+                        start = i;
+                    }
+                    if (++containers > interpreter.containers)
+                        throw new Error(CONTAINERS_OVERFLOW, offset + i);
+                    
+                    if (depth == objects.length) {
+                        boolean[] grown = new boolean[depth * 2];
+                        System.arraycopy(objects, 0, grown, 0, depth);
+                        objects = grown;
+                    }
+                    objects[depth++] = (b == '{');
+                    break;
+                case '}': case ']':
+                    if (--depth < 1) {
+                        if (depth < 0)
+                            throw new Error(UNEXPECTED_CHARACTER, offset + i);
+                        
+                        values = value(i + 1, values);
+                    }
+                    break;
+                case ' ': case '\t': case '\r': case '\n':
+                    if (depth == 0 && start > -1)
+                        values = value(i, values);
+                    break;
+                case ',': case ':':
+                    if (depth == 0)
+                        throw new Error(UNEXPECTED_CHARACTER, offset + i);
+                    
+                    if ((b == ':') == objects[depth - 1] 
+                        && ++iterations > interpreter.iterations)
+                        throw new Error(ITERATIONS_OVERFLOW, offset + i);
+                    
+                    break;
+                default:
+                    if (depth == 0 && start < 0)
+                        start = i;
+                }
+            }
+            if (start > -1 && length - start > limit)
+                throw new Error(VALUE_OVERFLOW, offset + start);
+            
+            scanned = length;
+            if (start < 0) {
+                offset += length;
+                length = scanned = 0;
+            } else if (start > 0) {
+                length -= start;
+                System.arraycopy(buffer, start, buffer, 0, length);
+                offset += start;
+                scanned -= start;
+                start = 0;
+            }
+            return (values == null ? Collections.EMPTY_LIST: values);
+        }
+        
+        /**
+         * Evaluate the value fed from <code>start</code> to 
+         * <code>stop</code> and add it to a list of values, maybe new.
+         */
+        protected final List value(int stop, List values) throws Error {
+            if (stop - start > limit)
+                throw new Error(VALUE_OVERFLOW, offset + start);
+            
+            try {
+                last = interpreter.eval(buffer, start, stop - start);
+            } catch (Error e) {
+                if (e.jsonIndex > -1)
+                    e.jsonIndex += offset + start;
+                throw e;
+            }
+            fed = true;
+            start = -1;
+            containers = iterations = 0;
+            if (values == null)
+                values = new ArrayList();
+            values.add(last);
+            return values;
+        }
+        
+        /**
+         * Evaluate the value left at the end of the bytes fed, if any, 
+         * and return the last value completed.
+         * 
+         * @return the last value fed
+         * @throws JSON.Error if the last value is incomplete or if no 
+         *         value was fed
+         */
+        public java.lang.Object finish() throws Error {
+            if (depth > 0 || quoted)
+                throw new Error(UNEXPECTED_END, offset + length);
+            
+            if (start > -1)
+                value(length, null);
+            if (!fed)
+                throw new Error(NULL_JSON_STRING, offset + length);
+            
+            return last;
+        }
+        
+    }
+    
+    /**
+     * Convert the text of a JSON number to a <code>Double</code> if it 
+     * has an exponent, a <code>BigDecimal</code> if it has decimals or 
+     * else an <code>Integer</code>.
+     */
+    protected static final java.lang.Object numeric(
+        String text, boolean decimal, boolean exponent
+        ) {
+        if (exponent)
+            return Double.valueOf(text);
+        else if (decimal)
+            return new BigDecimal(text);
+        else if (text.length() < 10)
+            return integer(Integer.parseInt(text));
+        else if (text.length() < 19) {
+            long value = Long.parseLong(text);
+            if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE)
+                return integer((int) value);
+            else
+                return new Long(value);
+        } else {
+            BigInteger big = new BigInteger(text);
+            if (big.bitLength() < 64)
+                return new Long(big.longValue());
+            else
+                return big;
+        }
+    }
+    
+    /**
+     * Instanciate a new <code>JSON.Object</code> with an even sequence
+     * of name and value pairs, a convenient way to express JSON literals
+     * in java.
+     * 
+     * @pre JSON.dict(new Object[]{
+     *     "hello", "world",
+     *     "one", new Integer(1),
+     *     "test", Boolean.TRUE 
+     *     });
+     * 
+     * @param pairs of key and values
+     * @return a new <code>JSON.Object</code>
+     */
+    public static final JSON.Object dict (java.lang.Object[] pairs) {
+        JSON.Object result = new JSON.Object();
+        for (int i=0; i< pairs.length; i=i+2)
+            if (pairs[i] instanceof String)
+                result.put(pairs[i], pairs[i+1]);
+            else
+                result.put(pairs[i].toString(), pairs[i+1]);
+        return result;
+    };
+    
+    /**
+     * Instanciate a new <code>JSON.Object</code> with an sequence
+     * of name and value String pairs, a convenience to map a 
+     * <code>String[][]</code> array of options to a dictionary.
+     * 
+     * @pre JSON.dict(new String[][]{
+     *     {"hello", "world"},
+     *     {"one", "1"},
+     *     {"test", "true"} 
+     *     });
+     * 
+     * @param pairs of key and values
+     * @return a new <code>JSON.Object</code>
+     */
+    public static final JSON.Object options (String[][] pairs) {
+        JSON.Object result = new JSON.Object();
+        for (int i=0; i<pairs.length; i++) {
+            if (pairs[i].length > 1)
+                result.put(pairs[i][0], pairs[i][1]);
+            else
+                result.put(pairs[i][0], null);
+        }
+        return result;
+    };
+    
+    /**
+     * Instanciate a new <code>JSON.Array</code> with a sequence of values, 
+     * a convenient way to express JSON literals in java.
+     * 
+     * @pre JSON.list(new Object[]{
+     *     "world", new Integer(1), Boolean.TRUE, null 
+     *     });
+     * 
+     * @param items
+     * @result a new <code>JSON.Array</code>
+     */
+    public static final JSON.Array list (java.lang.Object[] items) {
+        return (JSON.Array) Objects.extend(new JSON.Array(), items);
+    };
+    
+    /**
+     * Decode a JSON string.
+     * 
+     * @param encoded JSON string
+     * @return a JSON type
+     * @throws JSON syntax error
+     */
+    public static final java.lang.Object decode(String encoded) 
+    throws Error {
+        return (new JSON()).eval(encoded);
+    };
+    
+    /**
+     * Select the values found at <code>paths</code> in a JSON string.
+     * 
+     * @pre Object[] selected = JSON.select(json, new String[]{
+     *    "$.method", "$.params.id"
+     *    });
+     * 
+     * @param json string to evaluate
+     * @param paths to select
+     * @return an array of values selected, <code>null</code> for the 
+     *         paths not found
+     * @throws JSON.Error
+     */
+    public static final java.lang.Object[] select(
+        String json, String[] paths
+        ) throws Error {
+        return (new JSON()).select(json, new Paths(paths));
+    }
+    
+    /**
+     * A compiled set of paths to the values selected in JSON texts, names
+     * following a dot or quoted between brackets and indexes between 
+     * brackets, like <code>$.params.id</code>, <code>$.params[0]</code> 
+     * or <code>$["content-type"]</code>.
+     * 
+     * @pre JSON.Paths paths = new JSON.Paths(new String[]{
+     *    "$.method", "$.params.id"
+     *    });
+     *Object[] selected = json.select(body, 0, body.length, paths);
+     *
+     * @p Values not selected are validated and counted against the limits
+     * of the interpreter without being instanciated. A value that is not
+     * an object or an array where a path expects one is reported as a
+     * <code>JSON.Error</code> with its path, a <code>null</code> value or
+     * a missing member or item is selected as <code>null</code>.
+     * 
+     * @p Instances are immutable and can be shared by threads.
+     */
+    public static class Paths {
+        
+        /**
+         * The paths selected.
+         */
+        public final String[] paths;
+        
+        protected final Step root = new Step();
+        
+        /**
+         * Compile paths or throw a <code>JSON.Error</code> with the index 
+         * of the syntax error in the path and the path's index in
+         * <code>paths</code>.
+         * 
+         * @param paths to compile
+         * @throws JSON.Error
+         */
+        public Paths(String[] paths) throws Error {
+            this.paths = paths;
+            for (int i=0; i<paths.length; i++) try {
+                compile(paths[i], i);
+            } catch (Error e) {
+                e.path(integer(i));
+                throw e;
+            }
+        }
+        
+        private final void compile(String path, int slot) throws Error {
+            int L = path.length(), i = 1, j;
+            char c;
+            if (L == 0 || path.charAt(0) != '$')
+                throw new Error(PATH_SYNTAX_ERROR, 0);
+            
+            Step step = root;
+            while (i < L) {
+                switch (path.charAt(i)) {
+                case '.':
+                    j = i + 1;
+                    while (j < L && (c = path.charAt(j)) != '.' && c != '[') 
+                        j++;
+                    if (j == i + 1)
+                        throw new Error(PATH_SYNTAX_ERROR, j);
+                    
+                    step = step.add(path.substring(i + 1, j));
+                    i = j;
+                    break;
+                case '[':
+                    j = i + 1;
+                    if (j < L && path.charAt(j) == '"') {
+                        for (j++; j < L && path.charAt(j) != '"'; j++)
+                            if (path.charAt(j) == '\\') j++;
+                        if (j + 1 >= L || path.charAt(j + 1) != ']')
+                            throw new Error(PATH_SYNTAX_ERROR, i);
+                        
+                        step = step.add((String) (new JSON()).eval(
+                            path.substring(i + 1, j + 1)
+                            ));
+                        i = j + 2;
+                    } else {
+                        while (j < L && (c = path.charAt(j)) >= '0' && c <= '9')
+                            j++;
+                        if (j == i + 1 || j >= L || path.charAt(j) != ']')
+                            throw new Error(PATH_SYNTAX_ERROR, j);
+                        
+                        try {
+                            step = step.add(Integer.parseInt(
+                                path.substring(i + 1, j)
+                                ));
+                        } catch (NumberFormatException e) {
+                            throw new Error(PATH_SYNTAX_ERROR, i + 1);
+                        }
+                        i = j + 1;
+                    }
+                    break;
+                default:
+                    throw new Error(PATH_SYNTAX_ERROR, i);
+                }
+            }
+            step.slots = grow(step.slots);
+            step.slots[step.slots.length - 1] = slot;
+        }
+        
+    }
+    
+    /**
+     * A step of compiled <code>Paths</code>, with the names and indexes of
+     * its children and the slots of the paths ending at this step. 
+     */
+    protected static final class Step {
+        
+        protected String[] names = null;
+        protected Step[] members = null;
+        protected int[] indexes = null;
+        protected Step[] items = null;
+        protected int[] slots = null;
+        
+        protected final Step member(String name) {
+            if (names != null)
+                for (int i=0; i<names.length; i++)
+                    if (names[i].equals(name))
+                        return members[i];
+            return null;
+        }
+        
+        protected final Step item(int index) {
+            if (indexes != null)
+                for (int i=0; i<indexes.length; i++)
+                    if (indexes[i] == index)
+                        return items[i];
+            return null;
+        }
+        
+        protected final Step add(String name) {
+            Step step = member(name);
+            if (step == null) {
+                int L = (names == null ? 0: names.length);
+                String[] n = new String[L + 1];
+                Step[] m = new Step[L + 1];
+                if (L > 0) {
+                    System.arraycopy(names, 0, n, 0, L);
+                    System.arraycopy(members, 0, m, 0, L);
+                }
+                n[L] = name;
+                m[L] = step = new Step();
+                names = n;
+                members = m;
+            }
+            return step;
+        }
+        
+        protected final Step add(int index) {
+            Step step = item(index);
+            if (step == null) {
+                indexes = grow(indexes);
+                int L = indexes.length - 1;
+                Step[] i = new Step[L + 1];
+                if (L > 0)
+                    System.arraycopy(items, 0, i, 0, L);
+                indexes[L] = index;
+                i[L] = step = new Step();
+                items = i;
+            }
+            return step;
+        }
+        
+        /**
+         * Select a decoded <code>value</code> and the values of its 
+         * children, reporting type errors at the <code>index</code> of 
+         * the value in the source.
+         */
+        protected final void select(
+            java.lang.Object value, java.lang.Object[] selected, int index
+            ) throws Error {
+            if (slots != null)
+                for (int i=0; i<slots.length; i++)
+                    selected[slots[i]] = value;
+            if (value == null)
+                return;
+            
+            if (names != null) {
+                if (!(value instanceof Map))
+                    throw new Error(OBJECT_TYPE_ERROR, index);
+                
+                Map map = (Map) value;
+                for (int i=0; i<names.length; i++) try {
+                    members[i].select(map.get(names[i]), selected, index);
+                } catch (Error e) {
+                    e.path(names[i]);
+                    throw e;
+                }
+            }
+            if (items != null) {
+                if (!(value instanceof List))
+                    throw new Error(ARRAY_TYPE_ERROR, index);
+                
+                List list = (List) value;
+                for (int i=0; i<indexes.length; i++) try {
+                    if (indexes[i] < list.size())
+                        items[i].select(list.get(indexes[i]), selected, index);
+                } catch (Error e) {
+                    e.path(integer(indexes[i]));
+                    throw e;
+                }
+            }
+        }
+        
+    }
+    
+    private static final int[] grow(int[] array) {
+        if (array == null)
+            return new int[1];
+        
+        int[] grown = new int[array.length + 1];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+    
+    /**
+     * A codec of the public instance fields of a class, introspected 
+     * once and cached by <code>JSON.codec</code>, that serializes its
+     * instances as objects with pre-escaped names and binds JSON objects
+     * to new instances.
+     * 
+     * @pre public class Point {
+     *    public int x, y;
+     *}
+     *...
+     *String json = JSON.encode(new Point());
+     *Point p = (Point) JSON.codec(Point.class).eval(
+     *    new JSONR(JSONR.compile("{\"x\": 0, \"y\": 0}")), json
+     *    );
+     * 
+     * @p The names of fields are sorted, instances of classes without
+     * public instance fields are serialized as strings, like before.
+     */
+    public static class Codec {
+        /**
+         * The class of the instances coded.
+         */
+        public final Class type;
+        protected final java.lang.reflect.Field[] fields;
+        protected final String[] names;
+        protected final String[] fragments;
+        protected final byte[][] bytes;
+        protected Codec(Class type) {
+            this.type = type;
+            java.lang.reflect.Field[] all = type.getFields();
+            ArrayList coded = new ArrayList();
+            int modifiers;
+            for (int i=0; i<all.length; i++) {
+                modifiers = all[i].getModifiers();
+                if (
+                    java.lang.reflect.Modifier.isStatic(modifiers) ||
+                    java.lang.reflect.Modifier.isTransient(modifiers)
+                    )
+                    continue;
+                try {
+                    all[i].setAccessible(true);
+                } catch (SecurityException e) {;}
+                coded.add(all[i]);
+            }
+            fields = new java.lang.reflect.Field[coded.size()];
+            names = new String[fields.length];
+            fragments = new String[fields.length];
+            bytes = new byte[fields.length][];
+            java.lang.Object[] sorted = new java.lang.Object[fields.length];
+            for (int i=0; i<sorted.length; i++)
+                sorted[i] = ((java.lang.reflect.Field) coded.get(i)).getName();
+            Arrays.sort(sorted);
+            StringBuffer sb = new StringBuffer();
+            for (int i=0; i<sorted.length; i++) {
+                names[i] = SYMBOLS.intern((String) sorted[i]);
+                for (int j=0; j<sorted.length; j++)
+                    if (((java.lang.reflect.Field) coded.get(j)).getName()
+                        .equals(names[i]))
+                        fields[i] = (java.lang.reflect.Field) coded.get(j);
+                sb.setLength(0);
+                sb.append(i == 0 ? '{': ',');
+                JSON.strb(sb, names[i]);
+                sb.append(':');
+                fragments[i] = sb.toString();
+                bytes[i] = Bytes.encode(fragments[i], "UTF-8");
+            }
+        }
+        /**
+         * Return true if instances are coded as JSON objects.
+         */
+        public final boolean coded() {
+            return fields.length > 0;
+        }
+        protected final java.lang.Object get(int i, java.lang.Object value) {
+            try {
+                return fields[i].get(value);
+            } catch (IllegalAccessException e) {
+                return null;
+            }
+        }
+        /**
+         * Reflect the public fields of <code>value</code> in a new
+         * <code>JSON.Object</code>.
+         * 
+         * @param value to reflect
+         * @return a <code>JSON.Object</code>
+         */
+        public final JSON.Object reflect(java.lang.Object value) {
+            JSON.Object proxy = new JSON.Object();
+            for (int i=0; i<fields.length; i++)
+                proxy.put(names[i], get(i, value));
+            return proxy;
+        }
+        protected final StringBuffer strb(
+            StringBuffer sb, java.lang.Object value, boolean sorted, int depth
+            ) {
+            for (int i=0; i<fields.length; i++) {
+                sb.append(fragments[i]);
+                JSON.strb(sb, get(i, value), sorted, depth);
+            }
+            sb.append('}');
+            return sb;
+        }
+        protected final void write(Writer writer, java.lang.Object value) 
+        throws IOException {
+            writer.enter();
+            for (int i=0; i<fields.length; i++) {
+                writer.ascii(bytes[i]);
+                writer.write(get(i, value));
+            }
+            writer.ascii('}');
+            writer.depth--;
+        }
+        /**
+         * Evaluate a JSON object with an interpreter, possibly a 
+         * <code>JSONR</code> one to validate it, and bind it to a new 
+         * instance.
+         * 
+         * @param interpreter to evaluate with
+         * @param json to evaluate
+         * @return a new instance of <code>type</code>
+         * @throws JSON.Error
+         */
+        public final java.lang.Object eval(JSON interpreter, String json) 
+        throws Error {
+            return bind(interpreter.eval(json));
+        }
+        /**
+         * Bind a JSON object to a new instance of <code>type</code>.
+         * 
+         * @param value a <code>Map</code> to bind
+         * @return a new instance of <code>type</code>
+         * @throws JSON.Error
+         */
+        public final java.lang.Object bind(java.lang.Object value) 
+        throws Error {
+            if (!(value instanceof Map))
+                throw new Error(OBJECT_TYPE_ERROR);
+            
+            java.lang.Object instance;
+            try {
+                instance = type.getDeclaredConstructor(
+                    new Class[0]
+                    ).newInstance(new java.lang.Object[0]);
+            } catch (Exception e) {
+                throw new Error(INSTANCIATION_ERROR);
+            }
+            return update(instance, (Map) value);
+        }
+        /**
+         * Update the public fields of an instance with the members of 
+         * the same name in a map, converting numbers, lists and objects 
+         * to the fields' types.
+         * 
+         * @param instance to update
+         * @param map of values
+         * @return the updated instance
+         * @throws JSON.Error
+         */
+        public final java.lang.Object update(
+            java.lang.Object instance, Map map
+            ) throws Error {
+            for (int i=0; i<fields.length; i++) {
+                if (!map.containsKey(names[i]))
+                    continue;
+                
+                try {
+                    fields[i].set(instance, value(
+                        map.get(names[i]), fields[i].getType()
+                        ));
+                } catch (Error e) {
+                    e.path(names[i]);
+                    throw e;
+                } catch (IllegalAccessException e) {
+                    throw new Error(INSTANCIATION_ERROR);
+                }
+            }
+            return instance;
+        }
+        /**
+         * Return the exact integral value of a number between 
+         * <code>min</code> and <code>max</code>, or throw a 
+         * <code>JSON.Error</code> rather than truncate or wrap it.
+         */
+        protected static final long exact(Number n, long min, long max) 
+        throws Error {
+            long l;
+            if (
+                n instanceof Integer || n instanceof Long || 
+                n instanceof Short || n instanceof Byte
+                )
+                l = n.longValue();
+            else if (n instanceof BigInteger) {
+                if (((BigInteger) n).bitLength() > 63)
+                    throw new Error(INTEGER_TYPE_ERROR);
+                
+                l = n.longValue();
+            } else if (n instanceof BigDecimal) {
+                BigDecimal d = (BigDecimal) n;
+                if (d.signum() != 0 && d.scale() < -18)
+                    throw new Error(INTEGER_TYPE_ERROR);
+                
+                BigInteger i;
+                try {
+                    i = d.setScale(0, BigDecimal.ROUND_UNNECESSARY)
+                        .unscaledValue();
+                } catch (ArithmeticException e) {
+                    throw new Error(INTEGER_TYPE_ERROR);
+                }
+                if (i.bitLength() > 63)
+                    throw new Error(INTEGER_TYPE_ERROR);
+                
+                l = i.longValue();
+            } else {
+                double d = n.doubleValue();
+                if (
+                    d != Math.floor(d) || 
+                    d < -9.223372036854775808E18 || 
+                    d >= 9.223372036854775808E18
+                    )
+                    throw new Error(INTEGER_TYPE_ERROR);
+                
+                l = (long) d;
+            }
+            if (l < min || l > max)
+                throw new Error(INTEGER_TYPE_ERROR);
+            
+            return l;
+        }
+        /**
+         * Convert a JSON value to a given type, throwing a 
+         * <code>JSON.Error</code> for numbers that would be truncated
+         * or overflow.
+         */
+        protected static final java.lang.Object value(
+            java.lang.Object value, Class type
+            ) throws Error {
+            if (value == null) {
+                if (type.isPrimitive())
+                    throw new Error(NULL_TYPE_ERROR);
+                return null;
+            } else if (type == Integer.TYPE || type == Integer.class)
+                return integer((int) exact(
+                    N(value), Integer.MIN_VALUE, Integer.MAX_VALUE
+                    ));
+            else if (type == Long.TYPE || type == Long.class)
+                return new Long(
+                    exact(N(value), Long.MIN_VALUE, Long.MAX_VALUE)
+                    );
+            else if (type == Double.TYPE || type == Double.class) {
+                double d = N(value).doubleValue();
+                if (Double.isInfinite(d))
+                    throw new Error(DOUBLE_TYPE_ERROR);
+                return new Double(d);
+            } else if (type == Boolean.TYPE || type == Boolean.class)
+                return B(value);
+            else if (type == String.class)
+                return S(value);
+            else if (type == BigDecimal.class)
+                return (value instanceof BigDecimal ? 
+                    value: new BigDecimal(N(value).toString()));
+            else if (type == BigInteger.class) {
+                if (value instanceof BigInteger)
+                    return value;
+                else if (value instanceof Double || value instanceof Float) {
+                    double d = N(value).doubleValue();
+                    if (Double.isInfinite(d))
+                        throw new Error(INTEGER_TYPE_ERROR);
+                    value = new BigDecimal(value.toString());
+                }
+                if (value instanceof BigDecimal) try {
+                    return ((BigDecimal) value).setScale(
+                        0, BigDecimal.ROUND_UNNECESSARY
+                        ).unscaledValue();
+                } catch (ArithmeticException e) {
+                    throw new Error(INTEGER_TYPE_ERROR);
+                }
+                return BigInteger.valueOf(
+                    exact(N(value), Long.MIN_VALUE, Long.MAX_VALUE)
+                    );
+            } else if (type == Short.TYPE || type == Short.class)
+                return new Short((short) exact(
+                    N(value), Short.MIN_VALUE, Short.MAX_VALUE
+                    ));
+            else if (type == Byte.TYPE || type == Byte.class)
+                return new Byte((byte) exact(
+                    N(value), Byte.MIN_VALUE, Byte.MAX_VALUE
+                    ));
+            else if (type == Float.TYPE || type == Float.class) {
+                double d = N(value).doubleValue();
+                if (Math.abs(d) > Float.MAX_VALUE)
+                    throw new Error(DOUBLE_TYPE_ERROR);
+                return new Float((float) d);
+            } else if (type == Character.TYPE || type == Character.class) {
+                String s = S(value);
+                if (s.length() != 1)
+                    throw new Error(STRING_TYPE_ERROR);
+                return new Character(s.charAt(0));
+            } else if (type.isInstance(value))
+                return value;
+            else if (type.isArray()) {
+                if (!(value instanceof List))
+                    throw new Error(ARRAY_TYPE_ERROR);
+                
+                List list = (List) value;
+                Class component = type.getComponentType();
+                java.lang.Object array = java.lang.reflect.Array.newInstance(
+                    component, list.size()
+                    );
+                for (int i=0, L=list.size(); i<L; i++) try {
+                    java.lang.reflect.Array.set(
+                        array, i, value(list.get(i), component)
+                        );
+                } catch (Error e) {
+                    e.path(integer(i));
+                    throw e;
+                }
+                return array;
+            } else if (value instanceof Map) {
+                Codec codec = codec(type);
+                if (codec.coded())
+                    return codec.bind(value);
+            }
+            throw new Error(CLASS_TYPE_ERROR);
         }
-        return result;
-    };
+    }
     
     /**
-     * Instanciate a new <code>JSON.Array</code> with a sequence of values, 
-     * a convenient way to express JSON literals in java.
-     * 
-     * @pre JSON.list(new Object[]{
-     *     "world", new Integer(1), Boolean.TRUE, null 
-     *     });
-     * 
-     * @param items
-     * @result a new <code>JSON.Array</code>
+     * The codecs of the classes most recently coded by this process, up 
+     * to 1024 of them.
      */
-    public static final JSON.Array list (java.lang.Object[] items) {
-        return (JSON.Array) Objects.extend(new JSON.Array(), items);
+    protected static final Map CODECS = new LinkedHashMap(16, 0.75f, true) {
+        private static final long serialVersionUID = 0L;
+        protected final boolean removeEldestEntry(Map.Entry eldest) {
+            return size() > 1024;
+        }
     };
     
     /**
-     * Decode a JSON string.
+     * Return the cached <code>Codec</code> of a class, introspecting 
+     * it the first time.
      * 
-     * @param encoded JSON string
-     * @return a JSON type
-     * @throws JSON syntax error
+     * @param type of the instances to code
+     * @return a <code>JSON.Codec</code>
      */
-    public static final java.lang.Object decode(String encoded) 
-    throws Error {
-        return (new JSON()).eval(encoded);
-    };
+    public static final Codec codec(Class type) {
+        Codec codec;
+        synchronized (CODECS) {
+            codec = (Codec) CODECS.get(type);
+        }
+        if (codec == null) {
+            codec = new Codec(type);
+            synchronized (CODECS) {
+                CODECS.put(type, codec);
+            }
+        }
+        return codec;
+    }
     
     /**
-     * Try to reflect all public fields of <code>value</code> as a 
-     * <code>JSON.Object</code>.
+     * Reflect all public instance fields of <code>value</code> as a 
+     * <code>JSON.Object</code>, using the cached codec of its class.
      * 
      * @param value to reflect
      * @return a <code>JSON.Object</code>
@@ -1239,16 +4540,7 @@ public class JSON {
     public static final java.lang.Object reflect(
         java.lang.Object value
         ) {
-        JSON.Object proxy = new JSON.Object();
-        java.lang.reflect.Field[] fields = value.getClass().getFields();
-        for (int i = 0; i < fields.length; i++) {
-            try {
-                proxy.put(fields[i].getName(), fields[i].get(value));
-            } catch (Throwable e) {
-                continue;
-            }
-        }
-        return proxy;
+        return codec(value.getClass()).reflect(value);
     }
     
     protected static final String _quote = "\\\"";
@@ -1260,27 +4552,46 @@ public class JSON {
     protected static final String _ctrl_r = "\\r";
     protected static final String _ctrl_t = "\\t";
     
+    /**
+     * Append a quoted and escaped string, in bulk up to each character
+     * escaped.
+     */
     protected static final StringBuffer strb(StringBuffer sb, String s) {
         if (s==null) {sb.append(_null); return sb;}
         sb.append('"');
-        CharacterIterator it = new StringCharacterIterator(s);
-        for (char c = it.first(); c != _done; c = it.next()) {
+        char[] text = null;
+        String escape;
+        char c;
+        int L = s.length(), run = 0;
+        for (int i = 0; i < L; i++) {
+            c = s.charAt(i);
             switch(c) {
-            case '"':  sb.append(_quote); break;
-            case '\\': sb.append(_back); break;
-            case '/': sb.append(_slash); break;
-            case '\b': sb.append(_ctrl_b); break;
-            case '\f': sb.append(_ctrl_f); break;
-            case '\n': sb.append(_ctrl_n); break;
-            case '\r': sb.append(_ctrl_r); break;
-            case '\t': sb.append(_ctrl_t); break;
+            case '"':  escape = _quote; break;
+            case '\\': escape = _back; break;
+            case '/': escape = _slash; break;
+            case '\b': escape = _ctrl_b; break;
+            case '\f': escape = _ctrl_f; break;
+            case '\n': escape = _ctrl_n; break;
+            case '\r': escape = _ctrl_r; break;
+            case '\t': escape = _ctrl_t; break;
             default: 
-                if (Character.isISOControl(c))
-                    unicode(sb, c);
-                else
-                    sb.append(c);
+                if (!(Character.isISOControl(c)))
+                    continue;
+                escape = null;
             }
+            if (text == null)
+                text = s.toCharArray();
+            sb.append(text, run, i - run);
+            if (escape == null)
+                unicode(sb, c);
+            else
+                sb.append(escape);
+            run = i + 1;
         }
+        if (text == null)
+            sb.append(s);
+        else
+            sb.append(text, run, L - run);
         sb.append('"');
         return sb;
     }
@@ -1386,7 +4697,7 @@ public class JSON {
     }
     
     protected static final StringBuffer strb(StringBuffer sb, char[] chars) {
-        return strb(sb, chars.toString());
+        return strb(sb, new String(chars));
     }
     
     protected static final StringBuffer strb(
@@ -1424,6 +4735,12 @@ public class JSON {
     protected static final StringBuffer strb(
         StringBuffer sb, Map map, Iterator it
         ) {
+        return strb(sb, map, it, true, 0);
+    }
+    
+    protected static final StringBuffer strb(
+        StringBuffer sb, Map map, Iterator it, boolean sorted, int depth
+        ) {
         java.lang.Object key; 
         if (!it.hasNext()) {
             sb.append(_object);
@@ -1431,15 +4748,15 @@ public class JSON {
         }
         sb.append('{');
         key = it.next();
-        strb(sb, key);
+        strb(sb, key, sorted, depth);
         sb.append(':');
-        strb(sb, map.get(key));
+        strb(sb, map.get(key), sorted, depth);
         while (it.hasNext()) {
             sb.append(',');
             key = it.next();
-            strb(sb, key);
+            strb(sb, key, sorted, depth);
             sb.append(':');
-            strb(sb, map.get(key));
+            strb(sb, map.get(key), sorted, depth);
         }
         sb.append('}');
         return sb;
@@ -1469,22 +4786,69 @@ public class JSON {
         return sb;
     }
     
+    /**
+     * The characters of numbers and dates formatted by <code>strb</code>,
+     * one buffer for each thread.
+     */
+    private static final ThreadLocal CHARS = new ThreadLocal() {
+        protected java.lang.Object initialValue() {
+            return new char[32];
+        }
+    };
+    
+    /**
+     * Append a number's JSON text, without a zero fraction.
+     */
+    protected static final StringBuffer strb(StringBuffer sb, Number value) {
+        if (value instanceof Integer)
+            return sb.append(value.intValue());
+        else if (value instanceof Long)
+            return sb.append(value.longValue());
+        
+        char[] chars = (char[]) CHARS.get();
+        int length = Decimal.format(value, chars, 0);
+        if (length < 0)
+            return sb.append(trimZero(value.toString()));
+        
+        return sb.append(chars, 0, length);
+    }
+    
+    /**
+     * Append the quoted ISO 8601 text of an instant in UTC.
+     */
+    protected static final StringBuffer datetime(StringBuffer sb, long time) {
+        char[] chars = (char[]) CHARS.get();
+        chars[0] = '"';
+        int length = DateTime.format(time, chars, 1);
+        chars[length++] = '"';
+        return sb.append(chars, 0, length);
+    }
+    
     protected static final StringBuffer strb(StringBuffer sb, Iterator it) {
+        return strb(sb, it, true, 0);
+    }
+    
+    protected static final StringBuffer strb(
+        StringBuffer sb, Iterator it, boolean sorted, int depth
+        ) {
         if (!it.hasNext()) {
             sb.append(_array);
             return sb;
         }
         sb.append('[');
-        strb(sb, it.next());
+        strb(sb, it.next(), sorted, depth);
         while (it.hasNext()) {
             sb.append(',');
-            strb(sb, it.next());
+            strb(sb, it.next(), sorted, depth);
         }
         sb.append(']');
         return sb;
     }
     
     protected static final String trimZero (String untrimmed) {
+        if (untrimmed.indexOf('.') < 0 || untrimmed.indexOf('E') > -1)
+            return untrimmed;
+        
         int last = untrimmed.length();
         char c;
         while (last > 0) { 
@@ -1503,7 +4867,20 @@ public class JSON {
     }
     
     /**
-     * Serialize a JSON type in a <code>StringBuffer</code>
+     * The number of nested containers and instances serialized before
+     * a value is considered cyclic.
+     */
+    public static final int DEPTH = 1024;
+    
+    protected static final RuntimeException overflow() {
+        RuntimeException e = new IllegalArgumentException(DEPTH_ERROR);
+        e.initCause(new Error(DEPTH_ERROR));
+        return e;
+    }
+    
+    /**
+     * Serialize a JSON type in a <code>StringBuffer</code>, with the names
+     * of objects sorted.
      * 
      * @param sb to fill
      * @param value to serialize
@@ -1512,27 +4889,70 @@ public class JSON {
     public static final StringBuffer strb(
         StringBuffer sb, java.lang.Object value
         ) {
+        return strb(sb, value, true);
+    }
+    
+    /**
+     * Serialize a JSON type in a <code>StringBuffer</code>, with the names
+     * of objects sorted or in the order of their maps' iteration.
+     * 
+     * @p Sorted names make a canonical representation, as required to 
+     * digest or sign JSON values, unsorted ones save an array and a sort
+     * for each object serialized.
+     * 
+     * @param sb to fill
+     * @param value to serialize
+     * @param sorted names or not
+     * @return
+     */
+    public static final StringBuffer strb(
+        StringBuffer sb, java.lang.Object value, boolean sorted
+        ) {
+        return strb(sb, value, sorted, 0);
+    }
+    
+    /**
+     * Serialize a value nested in <code>depth</code> containers, throwing
+     * an <code>IllegalArgumentException</code> caused by a 
+     * <code>JSON.Error</code> below <code>DEPTH</code> of them, as for
+     * cyclic maps, lists or instances.
+     */
+    protected static final StringBuffer strb(
+        StringBuffer sb, java.lang.Object value, boolean sorted, int depth
+        ) {
+        if (depth > DEPTH)
+            throw overflow();
+        
         if (value == null) 
             sb.append(_null);
         else if (value instanceof Boolean)
             sb.append(((Boolean) value).booleanValue() ? _true : _false);
         else if (value instanceof Number) 
-            sb.append(trimZero(((Number) value).toString()));
+            strb(sb, (Number) value);
         else if (value instanceof String) 
             strb(sb, (String) value);
         else if (value instanceof Character) 
             strb(sb, ((Character) value).toString());
+        else if (value instanceof DateTime) 
+            datetime(sb, ((DateTime) value).getTime());
+        else if (value instanceof Date) 
+            datetime(sb, ((Date) value).getTime());
+        else if (value instanceof Calendar) 
+            datetime(sb, ((Calendar) value).getTimeInMillis());
         else if (value instanceof Iterator) 
-            strb(sb, (Iterator) value);
+            strb(sb, (Iterator) value, sorted, depth + 1);
         else if (value instanceof Map) {
             Map object = (Map) value;
-            java.lang.Object[] names = object.keySet().toArray();
-            Arrays.sort(names);
-            strb(sb, object, Objects.iter(names));
+            if (sorted) {
+                java.lang.Object[] names = object.keySet().toArray();
+                Arrays.sort(names);
+                strb(sb, object, Objects.iter(names), true, depth + 1);
+            } else
+                strb(sb, object, object.keySet().iterator(), false, depth + 1);
         } else if (value instanceof List)
-            strb(sb, ((List) value).iterator());
+            strb(sb, ((List) value).iterator(), sorted, depth + 1);
         else if (value instanceof Object[])
-            strb(sb, Objects.iter((java.lang.Object[]) value));
+            strb(sb, Objects.iter((java.lang.Object[]) value), sorted, depth + 1);
         else if (value instanceof NativeArray) {
             NativeArray array = (NativeArray) value;
             java.lang.Object[] ids = (array).getIds();
@@ -1543,7 +4963,7 @@ public class JSON {
                 for (int i=0; i < ids.length; i++) {
                     list[i] = array.get(i, array);
                 }
-                strb(sb, Objects.iter(list));
+                strb(sb, Objects.iter(list), sorted, depth + 1);
             }
         } else if (value instanceof NativeObject) {
             NativeObject object = (NativeObject) value;
@@ -1551,17 +4971,18 @@ public class JSON {
             if (ids.length == 0)
                 sb.append(_object);
             else {
-                Arrays.sort(ids);
+                if (sorted)
+                    Arrays.sort(ids);
                 JSON.Object map = new JSON.Object();
                 String key;
                 for (int i=0; i < ids.length; i++) {
                     key = (String) ids[i];
                     map.put(key, object.get(key, object));
                 }
-                strb(sb, map, Objects.iter(ids));
+                strb(sb, map, Objects.iter(ids), sorted, depth + 1);
             }
         } else if (value instanceof NativeJavaObject) {
-            strb(sb, ((NativeJavaObject) value).unwrap());
+            strb(sb, ((NativeJavaObject) value).unwrap(), sorted, depth);
         } else {
             Class type = null;
             try {type = value.getClass();} catch (Throwable e) {;}
@@ -1572,9 +4993,14 @@ public class JSON {
                 if (component.isPrimitive())
                     strb(sb, value, component);
                 else
-                    strb(sb, Objects.iter((java.lang.Object[]) value));
-            } else
-                strb(sb, value.toString());
+                    strb(sb, Objects.iter((java.lang.Object[]) value), sorted, depth + 1);
+            } else {
+                Codec codec = codec(type);
+                if (codec.coded())
+                    codec.strb(sb, value, sorted, depth + 1);
+                else
+                    strb(sb, value.toString());
+            }
         }
         return sb;
     }
@@ -1587,29 +5013,462 @@ public class JSON {
      * @return a JSON <code>String</code>
      */
     public static final String encode(java.lang.Object value) {
-        return strb(new StringBuffer(), value).toString();
+        return strb(new StringBuffer(), value, true).toString();
+    }
+    
+    /**
+     * Encode an untyped value as a JSON string with the names of objects
+     * sorted or not, return a <code>String</code> that can safely be 
+     * encoded in UTF-8.
+     * 
+     * @param value to encode
+     * @param sorted names or not
+     * @return a JSON <code>String</code>
+     */
+    public static final String encode(java.lang.Object value, boolean sorted) {
+        return strb(new StringBuffer(), value, sorted).toString();
+    }
+    
+    /**
+     * A serializer of the same types as <code>strb</code> that encodes
+     * JSON in UTF-8 straight to an <code>OutputStream</code> through a 
+     * fixed size buffer, without building a <code>String</code> first.
+     * 
+     * @pre JSON.Writer writer = new JSON.Writer(out);
+     *writer.write(value).flush();
+     * 
+     * @p A writer is not synchronized, it can be reused for another
+     * stream after a <code>reset</code>, keeping its buffer.
+     */
+    public static class Writer {
+        protected OutputStream out;
+        protected byte[] buffer;
+        protected int at = 0;
+        protected final char[] chars = new char[32];
+        /**
+         * Bytes written to the stream since the last reset.
+         */
+        public int written = 0;
+        /**
+         * Sort the names of objects, true by default. Set it to 
+         * <code>false</code> to write objects in their maps' iteration 
+         * order when the output does not have to be canonical.
+         */
+        public boolean sorted = true;
+        protected int depth = 0;
+        /**
+         * Instanciate a writer to <code>out</code> with a buffer of
+         * <code>IO.netBufferSize</code> bytes.
+         * 
+         * @param out the <code>OutputStream</code> to write to
+         */
+        public Writer(OutputStream out) {
+            this(out, IO.netBufferSize);
+        }
+        /**
+         * ...
+         * 
+         * @param out the <code>OutputStream</code> to write to
+         * @param size of the buffer, at least 32 bytes
+         */
+        public Writer(OutputStream out, int size) {
+            this.out = out;
+            buffer = new byte[(size < 32 ? 32: size)];
+        }
+        /**
+         * Discard any buffered bytes and write to another stream.
+         * 
+         * @param out the <code>OutputStream</code> to write to
+         * @return this writer
+         */
+        public final Writer reset(OutputStream out) {
+            this.out = out;
+            at = 0;
+            written = 0;
+            depth = 0;
+            return this;
+        }
+        /**
+         * Write the buffered bytes and flush the stream.
+         * 
+         * @throws IOException
+         */
+        public final void flush() throws IOException {
+            drain();
+            out.flush();
+        }
+        protected final void drain() throws IOException {
+            if (at > 0) {
+                out.write(buffer, 0, at);
+                written += at;
+                at = 0;
+            }
+        }
+        protected final void ascii(char c) throws IOException {
+            if (at == buffer.length) 
+                drain();
+            buffer[at++] = (byte) c;
+        }
+        protected final void ascii(byte[] bytes) throws IOException {
+            if (at + bytes.length > buffer.length) 
+                drain();
+            if (bytes.length > buffer.length) {
+                out.write(bytes);
+                written += bytes.length;
+            } else {
+                System.arraycopy(bytes, 0, buffer, at, bytes.length);
+                at += bytes.length;
+            }
+        }
+        protected final void ascii(String s) throws IOException {
+            int L = s.length();
+            if (at + L > buffer.length) 
+                drain();
+            if (L > buffer.length) {
+                for (int i=0; i<L; i++) ascii(s.charAt(i));
+            } else {
+                for (int i=0; i<L; i++) buffer[at++] = (byte) s.charAt(i);
+            }
+        }
+        protected final void integer(long l) throws IOException {
+            if (l == Long.MIN_VALUE) {
+                ascii(Long.toString(l));
+                return;
+            }
+            if (at + 20 > buffer.length)
+                drain();
+            if (l < 0) {
+                buffer[at++] = '-';
+                l = -l;
+            }
+            int end = at;
+            do {
+                buffer[end++] = (byte) ('0' + (int) (l % 10));
+                l = l / 10;
+            } while (l > 0);
+            byte b;
+            for (int i = at, j = end - 1; i < j; i++, j--) {
+                b = buffer[i]; buffer[i] = buffer[j]; buffer[j] = b;
+            }
+            at = end;
+        }
+        protected final void number(Number value) throws IOException {
+            int length = Decimal.format(value, chars, 0);
+            if (length < 0) {
+                ascii(trimZero(value.toString()));
+                return;
+            }
+            if (at + length > buffer.length)
+                drain();
+            for (int i = 0; i < length; i++)
+                buffer[at++] = (byte) chars[i];
+        }
+        protected final void datetime(long time) throws IOException {
+            chars[0] = '"';
+            int length = DateTime.format(time, chars, 1);
+            chars[length++] = '"';
+            if (at + length > buffer.length)
+                drain();
+            for (int i = 0; i < length; i++)
+                buffer[at++] = (byte) chars[i];
+        }
+        protected final void unicode(char c) throws IOException {
+            ascii(_unicode);
+            int n = c;
+            for (int i = 0; i < 4; ++i) {
+                ascii(_hex[(n & 0xf000) >> 12]);
+                n <<= 4;
+            }
+        }
+        /**
+         * Write a quoted and escaped string encoded in UTF-8, replacing
+         * unpaired surrogates with '?' like <code>String.getBytes</code>.
+         */
+        protected final void string(String s) throws IOException {
+            if (s == null) {
+                ascii(_null); 
+                return;
+            }
+            ascii('"');
+            char c, d;
+            for (int i=0, L=s.length(); i<L; i++) {
+                c = s.charAt(i);
+                switch(c) {
+                case '"':  ascii(_quote); break;
+                case '\\': ascii(_back); break;
+                case '/': ascii(_slash); break;
+                case '\b': ascii(_ctrl_b); break;
+                case '\f': ascii(_ctrl_f); break;
+                case '\n': ascii(_ctrl_n); break;
+                case '\r': ascii(_ctrl_r); break;
+                case '\t': ascii(_ctrl_t); break;
+                default: 
+                    if (Character.isISOControl(c)) {
+                        unicode(c);
+                        break;
+                    }
+                    if (at + 4 > buffer.length) 
+                        drain();
+                    if (c < 0x80) {
+                        buffer[at++] = (byte) c;
+                    } else if (c < 0x800) {
+                        buffer[at++] = (byte) (0xC0 | (c >> 6));
+                        buffer[at++] = (byte) (0x80 | (c & 0x3F));
+                    } else if (c >= 0xD800 && c <= 0xDFFF) {
+                        if (
+                            c <= 0xDBFF && i + 1 < L && 
+                            (d = s.charAt(i + 1)) >= 0xDC00 && d <= 0xDFFF
+                            ) {
+                            int u = 0x10000 + ((c - 0xD800) << 10) + (d - 0xDC00);
+                            buffer[at++] = (byte) (0xF0 | (u >> 18));
+                            buffer[at++] = (byte) (0x80 | ((u >> 12) & 0x3F));
+                            buffer[at++] = (byte) (0x80 | ((u >> 6) & 0x3F));
+                            buffer[at++] = (byte) (0x80 | (u & 0x3F));
+                            i++;
+                        } else
+                            buffer[at++] = '?';
+                    } else {
+                        buffer[at++] = (byte) (0xE0 | (c >> 12));
+                        buffer[at++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                        buffer[at++] = (byte) (0x80 | (c & 0x3F));
+                    }
+                }
+            }
+            ascii('"');
+        }
+        protected final void enter() {
+            if (++depth > DEPTH)
+                throw overflow();
+        }
+        protected final void write(Map map, Iterator it) throws IOException {
+            java.lang.Object key; 
+            if (!it.hasNext()) {
+                ascii(_object);
+                return;
+            }
+            enter();
+            ascii('{');
+            key = it.next();
+            write(key);
+            ascii(':');
+            write(map.get(key));
+            while (it.hasNext()) {
+                ascii(',');
+                key = it.next();
+                write(key);
+                ascii(':');
+                write(map.get(key));
+            }
+            ascii('}');
+            depth--;
+        }
+        protected final void write(Iterator it) throws IOException {
+            if (!it.hasNext()) {
+                ascii(_array);
+                return;
+            }
+            enter();
+            ascii('[');
+            write(it.next());
+            while (it.hasNext()) {
+                ascii(',');
+                write(it.next());
+            }
+            ascii(']');
+            depth--;
+        }
+        protected final void write(java.lang.Object value, Class component) 
+        throws IOException {
+            if (component.isArray()) {
+                Class type = component.getComponentType();
+                java.lang.Object[] values = (java.lang.Object[]) value;
+                if (values.length == 0) {
+                    ascii(_array);
+                    return;
+                }
+                ascii('[');
+                write(values[0], type);
+                for (int i=1; i<values.length; i++) {
+                    ascii(','); write(values[i], type);
+                }
+                ascii(']');
+                return;
+            } else if (component == Character.TYPE) {
+                string(new String((char[]) value));
+                return;
+            } 
+            int L = java.lang.reflect.Array.getLength(value);
+            if (L == 0) {
+                ascii(_array);
+                return;
+            }
+            ascii('[');
+            for (int i=0; i<L; i++) {
+                if (i > 0) 
+                    ascii(',');
+                if (component == Byte.TYPE)
+                    integer(((byte[]) value)[i]);
+                else if (component == Integer.TYPE)
+                    integer(((int[]) value)[i]);
+                else if (component == Long.TYPE)
+                    integer(((long[]) value)[i]);
+                else if (component == Short.TYPE)
+                    integer(((short[]) value)[i]);
+                else if (component == Double.TYPE)
+                    ascii(String.valueOf(((double[]) value)[i]));
+                else if (component == Boolean.TYPE)
+                    ascii(((boolean[]) value)[i] ? _true: _false);
+                else
+                    ascii(String.valueOf(
+                        java.lang.reflect.Array.get(value, i)
+                        ));
+            }
+            ascii(']');
+        }
+        /**
+         * Write a JSON value followed by a newline, as one record of a 
+         * newline delimited stream. Strings are escaped, so the record
+         * never contains another newline.
+         * 
+         * @param value to serialize
+         * @return this writer
+         * @throws IOException
+         */
+        public final Writer record(java.lang.Object value) 
+        throws IOException {
+            write(value);
+            ascii('\n');
+            return this;
+        }
+        /**
+         * Write a JSON value, leaving bytes buffered until the next 
+         * <code>flush</code>.
+         * 
+         * @param value to serialize
+         * @return this writer
+         * @throws IOException
+         */
+        public final Writer write(java.lang.Object value) throws IOException {
+            if (value == null) 
+                ascii(_null);
+            else if (value instanceof Boolean)
+                ascii(((Boolean) value).booleanValue() ? _true : _false);
+            else if (value instanceof Integer || value instanceof Long)
+                integer(((Number) value).longValue());
+            else if (value instanceof Number) 
+                number((Number) value);
+            else if (value instanceof String) 
+                string((String) value);
+            else if (value instanceof Character) 
+                string(((Character) value).toString());
+            else if (value instanceof DateTime) 
+                datetime(((DateTime) value).getTime());
+            else if (value instanceof Date) 
+                datetime(((Date) value).getTime());
+            else if (value instanceof Calendar) 
+                datetime(((Calendar) value).getTimeInMillis());
+            else if (value instanceof Iterator) 
+                write((Iterator) value);
+            else if (value instanceof Map) {
+                Map object = (Map) value;
+                if (sorted) {
+                    java.lang.Object[] names = object.keySet().toArray();
+                    Arrays.sort(names);
+                    write(object, Objects.iter(names));
+                } else
+                    write(object, object.keySet().iterator());
+            } else if (value instanceof List)
+                write(((List) value).iterator());
+            else if (value instanceof java.lang.Object[])
+                write(Objects.iter((java.lang.Object[]) value));
+            else if (value instanceof NativeArray) {
+                NativeArray array = (NativeArray) value;
+                java.lang.Object[] ids = (array).getIds();
+                if (ids.length == 0)
+                    ascii(_array);
+                else {
+                    java.lang.Object[] list = new java.lang.Object[ids.length]; 
+                    for (int i=0; i < ids.length; i++) {
+                        list[i] = array.get(i, array);
+                    }
+                    write(Objects.iter(list));
+                }
+            } else if (value instanceof NativeObject) {
+                NativeObject object = (NativeObject) value;
+                java.lang.Object[] ids = (object).getIds();
+                if (ids.length == 0)
+                    ascii(_object);
+                else {
+                    if (sorted)
+                        Arrays.sort(ids);
+                    JSON.Object map = new JSON.Object();
+                    String key;
+                    for (int i=0; i < ids.length; i++) {
+                        key = (String) ids[i];
+                        map.put(key, object.get(key, object));
+                    }
+                    write(map, Objects.iter(ids));
+                }
+            } else if (value instanceof NativeJavaObject) {
+                write(((NativeJavaObject) value).unwrap());
+            } else {
+                Class type = null;
+                try {type = value.getClass();} catch (Throwable e) {;}
+                if (type == null)
+                    string(value.toString());
+                else if (type.isArray()) {
+                    Class component = type.getComponentType();
+                    if (component.isPrimitive())
+                        write(value, component);
+                    else
+                        write(Objects.iter((java.lang.Object[]) value));
+                } else {
+                    Codec codec = codec(type);
+                    if (codec.coded())
+                        codec.write(this, value);
+                    else
+                        string(value.toString());
+                }
+            }
+            return this;
+        }
     }
     
     protected static final StringBuffer xjson(StringBuffer sb, String s) {
         sb.append('"');
-        CharacterIterator it = new StringCharacterIterator(s);
-        for (char c = it.first(); c != _done; c = it.next()) {
+        char[] text = null;
+        String escape;
+        char c;
+        int L = s.length(), run = 0;
+        for (int i = 0; i < L; i++) {
+            c = s.charAt(i);
             switch(c) {
-            case '"':  sb.append(_quote); break;
-            case '\\': sb.append(_back); break;
-            case '/': sb.append(_slash); break;
-            case '\b': sb.append(_ctrl_b); break;
-            case '\f': sb.append(_ctrl_f); break;
-            case '\n': sb.append(_ctrl_n); break;
-            case '\r': sb.append(_ctrl_r); break;
-            case '\t': sb.append(_ctrl_t); break;
+            case '"':  escape = _quote; break;
+            case '\\': escape = _back; break;
+            case '/': escape = _slash; break;
+            case '\b': escape = _ctrl_b; break;
+            case '\f': escape = _ctrl_f; break;
+            case '\n': escape = _ctrl_n; break;
+            case '\r': escape = _ctrl_r; break;
+            case '\t': escape = _ctrl_t; break;
             default: 
-                if (c > 126 || c < 32)
-                    unicode(sb, c);
-                else
-                    sb.append(c);
+                if (!(c > 126 || c < 32))
+                    continue;
+                escape = null;
             }
+            if (text == null)
+                text = s.toCharArray();
+            sb.append(text, run, i - run);
+            if (escape == null)
+                unicode(sb, c);
+            else
+                sb.append(escape);
+            run = i + 1;
         }
+        if (text == null)
+            sb.append(s);
+        else
+            sb.append(text, run, L - run);
         sb.append('"');
         return sb;
     }
@@ -1617,6 +5476,24 @@ public class JSON {
     protected static final StringBuffer xjson(
         StringBuffer sb, Map map, Iterator it
         ) {
+        return xjson(sb, map, it, 0);
+    }
+    
+    protected static final StringBuffer xjson(
+        StringBuffer sb, Iterator it
+        ) {
+        return xjson(sb, it, 0);
+    }
+    
+    protected static final StringBuffer xjson(
+        StringBuffer sb, java.lang.Object value
+        ) {
+        return xjson(sb, value, 0);
+    }
+    
+    protected static final StringBuffer xjson(
+        StringBuffer sb, Map map, Iterator it, int depth
+        ) {
         java.lang.Object key; 
         if (!it.hasNext()) {
             sb.append(_object);
@@ -1624,61 +5501,68 @@ public class JSON {
         }
         sb.append('{');
         key = it.next();
-        xjson(sb, key);
+        xjson(sb, key, depth);
         sb.append(':');
-        xjson(sb, map.get(key));
+        xjson(sb, map.get(key), depth);
         while (it.hasNext()) {
             sb.append(',');
             key = it.next();
-            xjson(sb, key);
+            xjson(sb, key, depth);
             sb.append(':');
-            xjson(sb, map.get(key));
+            xjson(sb, map.get(key), depth);
         }
         sb.append('}');
         return sb;
     }
     
     protected static final StringBuffer xjson(
-        StringBuffer sb, Iterator it
+        StringBuffer sb, Iterator it, int depth
         ) {
         if (!it.hasNext()) {
             sb.append(_array);
             return sb;
         }
         sb.append('[');
-        xjson(sb, it.next());
+        xjson(sb, it.next(), depth);
         while (it.hasNext()) {
             sb.append(',');
-            xjson(sb, it.next());
+            xjson(sb, it.next(), depth);
         }
         sb.append(']');
         return sb;
     }
     
+    /**
+     * Encode a value nested in <code>depth</code> containers, failing
+     * like <code>strb</code> below <code>DEPTH</code> of them.
+     */
     protected static final StringBuffer xjson(
-        StringBuffer sb, java.lang.Object value
+        StringBuffer sb, java.lang.Object value, int depth
         ) {
+        if (depth > DEPTH)
+            throw overflow();
+        
         if (value == null) 
             sb.append(_null);
         else if (value instanceof Boolean)
             sb.append(((Boolean) value).booleanValue() ? _true : _false);
         else if (value instanceof Number) 
-            sb.append(trimZero(((Number) value).toString()));
+            strb(sb, (Number) value);
         else if (value instanceof String) 
             xjson(sb, (String) value);
         else if (value instanceof Character) 
             xjson(sb, ((Character) value).toString());
         else if (value instanceof Iterator) 
-            xjson(sb, (Iterator) value);
+            xjson(sb, (Iterator) value, depth + 1);
         else if (value instanceof Map) {
             Map object = (Map) value;
             java.lang.Object[] names = object.keySet().toArray();
             Arrays.sort(names);
-            xjson(sb, object, Objects.iter(names));
+            xjson(sb, object, Objects.iter(names), depth + 1);
         } else if (value instanceof List)
-            xjson(sb, ((List) value).iterator());
+            xjson(sb, ((List) value).iterator(), depth + 1);
         else if (value instanceof Object[])
-            xjson(sb, Objects.iter((java.lang.Object[]) value));
+            xjson(sb, Objects.iter((java.lang.Object[]) value), depth + 1);
         else if (value instanceof NativeArray) {
             NativeArray array = (NativeArray) value;
             java.lang.Object[] ids = (array).getIds();
@@ -1689,7 +5573,7 @@ public class JSON {
                 for (int i=0; i < ids.length; i++) {
                     list[i] = array.get(i, array);
                 }
-                xjson(sb, Objects.iter(list));
+                xjson(sb, Objects.iter(list), depth + 1);
             }
         } else if (value instanceof NativeObject) {
             NativeObject object = (NativeObject) value;
@@ -1704,10 +5588,10 @@ public class JSON {
                     key = (String) ids[i];
                     map.put(key, object.get(key, object));
                 }
-                xjson(sb, map, Objects.iter(ids));
+                xjson(sb, map, Objects.iter(ids), depth + 1);
             }
         } else if (value instanceof NativeJavaObject) {
-            xjson(sb, ((NativeJavaObject) value).unwrap());
+            xjson(sb, ((NativeJavaObject) value).unwrap(), depth);
         } else {
             Class type = null;
             try {type = value.getClass();} catch (Throwable e) {;}
@@ -1718,8 +5602,12 @@ public class JSON {
                 if (component.isPrimitive())
                     strb(sb, value, component);
                 else
-                    xjson(sb, Objects.iter((java.lang.Object[]) value));
-            } else
+                    xjson(
+                        sb, Objects.iter((java.lang.Object[]) value), depth + 1
+                        );
+            } else if (codec(type).coded())
+                xjson(sb, codec(type).reflect(value), depth);
+            else
                 xjson(sb, value.toString());
         }
         return sb;
@@ -1742,6 +5630,24 @@ public class JSON {
     protected static final StringBuffer outline(
         StringBuffer sb, Map map, Iterator it, String indent
         ) {
+        return outline(sb, map, it, indent, 0);
+    }
+    
+    protected static final StringBuffer outline(
+        StringBuffer sb, Iterator it, String indent
+        ) {
+        return outline(sb, it, indent, 0);
+    }
+    
+    public static final StringBuffer outline(
+        StringBuffer sb, java.lang.Object value, String indent
+        ) {
+        return outline(sb, value, indent, 0);
+    }
+    
+    protected static final StringBuffer outline(
+        StringBuffer sb, Map map, Iterator it, String indent, int depth
+        ) {
         java.lang.Object key; 
         if (!it.hasNext()) {
             sb.append("{}");
@@ -1751,16 +5657,16 @@ public class JSON {
         sb.append('{');
         sb.append(indent);
         key = it.next();
-        outline(sb, key, indent);
+        outline(sb, key, indent, depth);
         sb.append(": ");
-        outline(sb, map.get(key), indent);
+        outline(sb, map.get(key), indent, depth);
         while (it.hasNext()) {
             sb.append(", ");
             sb.append(indent);
             key = it.next();
-            outline(sb, key, indent);
+            outline(sb, key, indent, depth);
             sb.append(": ");
-            outline(sb, map.get(key), indent);
+            outline(sb, map.get(key), indent, depth);
         }
         sb.append(indent);
         sb.append('}');
@@ -1768,7 +5674,7 @@ public class JSON {
     }
     
     protected static final StringBuffer outline(
-        StringBuffer sb, Iterator it, String indent
+        StringBuffer sb, Iterator it, String indent, int depth
         ) {
         if (!it.hasNext()) {
             sb.append("[]");
@@ -1777,41 +5683,46 @@ public class JSON {
         sb.append('[');
         indent += _indent;
         sb.append(indent);
-        outline(sb, it.next(), indent);
+        outline(sb, it.next(), indent, depth);
         while (it.hasNext()) {
             sb.append(", ");
             sb.append(indent);
-            outline(sb, it.next(), indent);
+            outline(sb, it.next(), indent, depth);
         }
         sb.append(indent);
         sb.append(']');
         return sb;
     }
     
-    public static final StringBuffer outline(
-        StringBuffer sb, java.lang.Object value, String indent
+    protected static final StringBuffer outline(
+        StringBuffer sb, java.lang.Object value, String indent, int depth
         ) {
+        if (depth > DEPTH)
+            throw overflow();
+        
         if (value == null) 
             sb.append(_null);
         else if (value instanceof Boolean)
             sb.append(((Boolean) value).booleanValue() ? _true : _false);
         else if (value instanceof Number) 
-            sb.append(trimZero(((Number) value).toString()));
+            strb(sb, (Number) value);
         else if (value instanceof String)
             strb(sb, (String) value);
         else if (value instanceof Character) 
             strb(sb, ((Character) value).toString());
         else if (value instanceof Iterator) 
-            outline(sb, (Iterator) value, indent);
+            outline(sb, (Iterator) value, indent, depth + 1);
         else if (value instanceof Map) {
             Map object = (Map) value;
             java.lang.Object[] names = object.keySet().toArray();
             Arrays.sort(names);
-            outline(sb, object, Objects.iter(names), indent);
+            outline(sb, object, Objects.iter(names), indent, depth + 1);
         } else if (value instanceof List)
-            outline(sb, ((List) value).iterator(), indent);
+            outline(sb, ((List) value).iterator(), indent, depth + 1);
         else if (value instanceof Object[])
-            outline(sb, Objects.iter((java.lang.Object[]) value), indent);
+            outline(
+                sb, Objects.iter((java.lang.Object[]) value), indent, depth + 1
+                );
         else if (value instanceof NativeArray) {
             NativeArray array = (NativeArray) value;
             java.lang.Object[] ids = (array).getIds();
@@ -1822,7 +5733,7 @@ public class JSON {
                 for (int i=0; i < ids.length; i++) {
                     list[i] = array.get(i, array);
                 }
-                outline(sb, Objects.iter(list), indent);
+                outline(sb, Objects.iter(list), indent, depth + 1);
             }
         } else if (value instanceof NativeObject) {
             NativeObject object = (NativeObject) value;
@@ -1837,10 +5748,12 @@ public class JSON {
                     key = (String) ids[i];
                     map.put(key, object.get(key, object));
                 }
-                outline(sb, map, Objects.iter(ids), indent);
+                outline(sb, map, Objects.iter(ids), indent, depth + 1);
             }
         } else if (value instanceof NativeJavaObject) {
-            outline(sb, ((NativeJavaObject) value).unwrap(), indent);
+            outline(
+                sb, ((NativeJavaObject) value).unwrap(), indent, depth
+                );
         } else {
             Class type = null;
             try {type = value.getClass();} catch (Throwable e) {;}
@@ -1851,9 +5764,13 @@ public class JSON {
                 if (component.isPrimitive())
                     strb(sb, value, component);
                 else
-                    outline(sb, Objects.iter((java.lang.Object[]) value), indent);
-            } else
-                outline(sb, value.toString(), indent);
+                    outline(
+                sb, Objects.iter((java.lang.Object[]) value), indent, depth + 1
+                );
+            } else if (codec(type).coded())
+                outline(sb, codec(type).reflect(value), indent, depth);
+            else
+                outline(sb, value.toString(), indent, depth);
         }
         return sb;
     }
@@ -1873,6 +5790,25 @@ public class JSON {
     protected static final StringBuffer pprint(
         StringBuffer sb, Map map, Iterator it, String indent, OutputStream os 
         ) throws IOException {
+        return pprint(sb, map, it, indent, os, 0);
+    }
+    
+    protected static final StringBuffer pprint(
+        StringBuffer sb, Iterator it, String indent, OutputStream os 
+        ) throws IOException {
+        return pprint(sb, it, indent, os, 0);
+    }
+    
+    protected static final StringBuffer pprint(
+        StringBuffer sb, java.lang.Object value, String indent, OutputStream os 
+        ) throws IOException {
+        return pprint(sb, value, indent, os, 0);
+    }
+    
+    protected static final StringBuffer pprint(
+        StringBuffer sb, Map map, Iterator it, String indent, OutputStream os,
+        int depth
+        ) throws IOException {
         java.lang.Object key; 
         if (!it.hasNext()) {
             sb.append("{}");
@@ -1882,16 +5818,16 @@ public class JSON {
         sb.append('{');
         sb.append(indent);
         key = it.next();
-        sb = pprint(sb, key, indent, os);
+        sb = pprint(sb, key, indent, os, depth);
         sb.append(": ");
-        sb = pprint(sb, map.get(key), indent, os);
+        sb = pprint(sb, map.get(key), indent, os, depth);
         while (it.hasNext()) {
             sb.append(", ");
             sb.append(indent);
             key = it.next();
-            sb = pprint(sb, key, indent, os);
+            sb = pprint(sb, key, indent, os, depth);
             sb.append(": ");
-            sb = pprint(sb, map.get(key), indent, os);
+            sb = pprint(sb, map.get(key), indent, os, depth);
             if (sb.length() > IO.netBufferSize) {
                 os.write(Bytes.encode(sb.toString(), "UTF-8"));
                 os.flush();
@@ -1904,7 +5840,8 @@ public class JSON {
     }
     
     protected static final StringBuffer pprint(
-        StringBuffer sb, Iterator it, String indent, OutputStream os 
+        StringBuffer sb, Iterator it, String indent, OutputStream os, 
+        int depth
         ) throws IOException {
         if (!it.hasNext()) {
             sb.append("[]");
@@ -1913,11 +5850,11 @@ public class JSON {
         sb.append('[');
         indent += _indent;
         sb.append(indent);
-        sb = pprint(sb, it.next(), indent, os);
+        sb = pprint(sb, it.next(), indent, os, depth);
         while (it.hasNext()) {
             sb.append(", ");
             sb.append(indent);
-            sb = pprint(sb, it.next(), indent, os);
+            sb = pprint(sb, it.next(), indent, os, depth);
             if (sb.length() > IO.netBufferSize) {
                 os.write(Bytes.encode(sb.toString(), "UTF-8"));
                 os.flush();
@@ -1930,31 +5867,39 @@ public class JSON {
     }
     
     protected static final StringBuffer pprint(
-        StringBuffer sb, java.lang.Object value, String indent, OutputStream os 
+        StringBuffer sb, java.lang.Object value, String indent, OutputStream os,
+        int depth
         ) throws IOException {
+        if (depth > DEPTH)
+            throw overflow();
+        
         if (value == null) 
             sb.append(_null);
         else if (value instanceof Boolean)
             sb.append(((Boolean) value).booleanValue() ? _true : _false);
         else if (value instanceof Number) 
-            sb.append(trimZero(((Number) value).toString()));
+            strb(sb, (Number) value);
         else if (value instanceof String)
             strb(sb, (String) value);
         else if (value instanceof Character) 
             strb(sb, ((Character) value).toString());
         else if (value instanceof Iterator) 
-            sb = pprint(sb, (Iterator) value, indent, os);
+            sb = pprint(sb, (Iterator) value, indent, os, depth + 1);
         else if (value instanceof Map) {
             Map object = (Map) value;
             java.lang.Object[] names = object.keySet().toArray();
             Arrays.sort(names);
-            sb = pprint(sb, object, Objects.iter(names), indent, os);
+            sb = pprint(
+                sb, object, Objects.iter(names), indent, os, depth + 1
+                );
         } else if (value instanceof List)
-            sb = pprint(sb, ((List) value).iterator(), indent, os);
+            sb = pprint(
+                sb, ((List) value).iterator(), indent, os, depth + 1
+                );
         else if (value instanceof Object[])
             sb = pprint(sb, Objects.iter(
                 (java.lang.Object[]) value
-                ), indent, os);
+                ), indent, os, depth + 1);
         else if (value instanceof NativeArray) {
             NativeArray array = (NativeArray) value;
             java.lang.Object[] ids = (array).getIds();
@@ -1965,7 +5910,7 @@ public class JSON {
                 for (int i=0; i < ids.length; i++) {
                     list[i] = array.get(i, array);
                 }
-                pprint(sb, Objects.iter(list), indent, os);
+                pprint(sb, Objects.iter(list), indent, os, depth + 1);
             }
         } else if (value instanceof NativeObject) {
             NativeObject object = (NativeObject) value;
@@ -1980,10 +5925,12 @@ public class JSON {
                     key = (String) ids[i];
                     map.put(key, object.get(key, object));
                 }
-                pprint(sb, map, Objects.iter(ids), indent, os);
+                pprint(sb, map, Objects.iter(ids), indent, os, depth + 1);
             }
         } else if (value instanceof NativeJavaObject) {
-            pprint(sb, ((NativeJavaObject) value).unwrap(), indent, os);
+            pprint(
+                sb, ((NativeJavaObject) value).unwrap(), indent, os, depth
+                );
         } else {
             Class type = null;
             try {type = value.getClass();} catch (Throwable e) {;}
@@ -1996,9 +5943,13 @@ public class JSON {
                 else
                     sb = pprint(sb, Objects.iter(
                         (java.lang.Object[]) value
-                        ), indent, os);
-            } else
-                sb = pprint(sb, value.toString(), indent, os);
+                        ), indent, os, depth + 1);
+            } else if (codec(type).coded())
+                sb = pprint(
+                    sb, codec(type).reflect(value), indent, os, depth
+                    );
+            else
+                sb = pprint(sb, value.toString(), indent, os, depth);
         }
         return sb;
     }
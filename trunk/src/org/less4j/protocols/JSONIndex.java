@@ -0,0 +1,406 @@
+/* Copyright (C) 2006-2007 Laurent A.V. Szyster
+
+This library is free software; you can redistribute it and/or modify
+it under the terms of version 2 of the GNU Lesser General Public License as
+published by the Free Software Foundation.
+
+   http://www.gnu.org/copyleft/lesser.html
+
+This library is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+
+You should have received a copy of the GNU Lesser General Public License
+along with this library; if not, write to the Free Software Foundation,
+Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA */
+
+package org.less4j.protocols; // less java for more applications
+
+/**
+ * A two stages interpreter of UTF-8 encoded JSON that first indexes the
+ * structure of its source and then walks that index to build the same
+ * <code>JSON.Object</code> and <code>JSON.Array</code> tree as
+ * <code>JSON</code>, within the same limits.
+ *
+ * @p The first stage scans 64 bytes blocks eight bytes at a time,
+ * classifying each block in 64 bits masks of quotes, backslashes,
+ * structural characters and whitespaces. It resolves escaped quotes and
+ * the extent of strings with bitwise arithmetics carried from block to
+ * block, then records the positions of structural characters, quotes and
+ * the first character of other values in an index. The second stage
+ * never looks at whitespaces and copies strings without escape sequences
+ * in bulk.
+ *
+ * @p It can be used as an interpreter for UTF-8 bodies:
+ *
+ * @pre Object value = (new JSONIndex()).eval(body, 0, body.length);
+ *
+ * @p or selected by a <code>JSON</code> interpreter for bodies longer
+ * than a given size:
+ *
+ * @pre JSON json = new JSON();
+ *json.structural = 16384;
+ *Object value = json.eval(body, 0, body.length);
+ *
+ * @p Sources not strictly conforming to RFC 4627 or exceeding the limits
+ * are evaluated again by <code>JSON</code>, which accepts or rejects them
+ * with the same results and errors as it would have alone.
+ */
+public class JSONIndex extends JSON {
+
+    private static final long ONES = 0x0101010101010101L;
+    private static final long LOWS = 0x7F7F7F7F7F7F7F7FL;
+    private static final long HIGHS = 0x8080808080808080L;
+    private static final long EVENS = 0x5555555555555555L;
+    private static final long GATHER = 0x0102040810204080L;
+    private static final long DEBRUIJN = 0x03F79D71B4CA8B09L;
+    private static final int[] TRAILING = new int[64];
+    static {
+        for (int i=0; i<64; i++)
+            TRAILING[(int) (((1L << i) * DEBRUIJN) >>> 58)] = i;
+    }
+
+    /**
+     * Return a mask of the bytes equal to <code>b</code> in a word, with
+     * one bit per byte in its low eight bits.
+     */
+    private static final int equals(long word, long b) {
+        long x = word ^ (b * ONES);
+        x = ~(((x & LOWS) + LOWS) | x) & HIGHS;
+        return (int) (((x >>> 7) * GATHER) >>> 56);
+    }
+
+    /**
+     * Return the prefix XOR of a mask, each bit set if an odd number of
+     * bits are set at and below its position.
+     */
+    private static final long prefix(long x) {
+        x ^= x << 1;
+        x ^= x << 2;
+        x ^= x << 4;
+        x ^= x << 8;
+        x ^= x << 16;
+        x ^= x << 32;
+        return x;
+    }
+
+    private static final class Fallback extends RuntimeException {
+        private static final long serialVersionUID = 0L;
+        public Throwable fillInStackTrace() {return this;}
+    }
+    private static final Fallback FALLBACK = new Fallback();
+
+    protected int[] index = new int[1024];
+    protected int count;
+    protected int k;
+
+    /**
+     * Instanciate a <code>JSONIndex</code> interpreter with limits set to
+     * 65355 on the number of containers and iterations.
+     */
+    public JSONIndex() {super();}
+
+    /**
+     * Instanciate a <code>JSONIndex</code> interpreter with the given
+     * limits on the number of both containers and iterations.
+     *
+     * @param containers a limit on the number of objects and arrays
+     * @param iterations a limit on the total count of values
+     */
+    public JSONIndex(int containers, int iterations) {
+        super(containers, iterations);
+    }
+
+    /**
+     * Evaluates a UTF-8 encoded JSON text found in <code>length</code>
+     * bytes from <code>offset</code>, indexing its structure first.
+     *
+     * @param bytes to evaluate
+     * @param offset of the JSON text in <code>bytes</code>
+     * @param length of the JSON text
+     * @return an untyped Object
+     * @throws JSON.Error
+     */
+    public java.lang.Object eval(byte[] bytes, int offset, int length)
+    throws Error {
+        int containers = this.containers, iterations = this.iterations;
+        scan(bytes, offset, length);
+        try {
+            structure();
+            k = 0;
+            java.lang.Object value = walk();
+            if (k == count)
+                return value;
+        } catch (Fallback e) {
+            ;
+        } catch (Error e) {
+            ;
+        } finally {
+            done();
+        }
+        this.containers = containers;
+        this.iterations = iterations;
+        return super.eval(bytes, offset, length);
+    }
+
+    /**
+     * Evaluate the source scanned by a <code>JSON</code> interpreter with
+     * its limits and symbols, then update its limits.
+     */
+    protected static final java.lang.Object eval(JSON json) throws Error {
+        JSONIndex intr = new JSONIndex(json.containers, json.iterations);
+        intr.symbols = json.symbols;
+        try {
+            return intr.eval(json.bytes, json.begin, json.end - json.begin);
+        } finally {
+            json.containers = intr.containers;
+            json.iterations = intr.iterations;
+        }
+    }
+
+    /**
+     * Index the positions of structural characters, quotes and of the
+     * first character of other values, 64 bytes at a time.
+     */
+    protected final void structure() {
+        count = 0;
+        byte[] block = new byte[64];
+        long escapedCarry = 0, stringCarry = 0, valueCarry = 0;
+        long quotes, backslashes, operators, spaces, word;
+        long follows, odd, sequences, escaped, strings, values, bits;
+        int i, j, shift, p;
+        byte[] source = bytes;
+        for (int base = begin; base < end; base += 64) {
+            int offset = base;
+            if (end - base < 64) {
+                for (i = 0; i < 64; i++)
+                    block[i] = (base + i < end ? bytes[base + i]: 32);
+                source = block;
+                offset = 0;
+            }
+            quotes = backslashes = operators = spaces = 0;
+            for (i = 0; i < 64; i += 8) {
+                p = offset + i;
+                word = (
+                    (source[p] & 0xFFL) |
+                    ((source[p + 1] & 0xFFL) << 8) |
+                    ((source[p + 2] & 0xFFL) << 16) |
+                    ((source[p + 3] & 0xFFL) << 24) |
+                    ((source[p + 4] & 0xFFL) << 32) |
+                    ((source[p + 5] & 0xFFL) << 40) |
+                    ((source[p + 6] & 0xFFL) << 48) |
+                    ((source[p + 7] & 0xFFL) << 56)
+                    );
+                quotes |= ((long) equals(word, '"')) << i;
+                backslashes |= ((long) equals(word, '\\')) << i;
+                long folded = word | (0x20 * ONES);
+                operators |= ((long) (
+                    equals(folded, '{') | equals(folded, '}') |
+                    equals(word, ':') | equals(word, ',')
+                    )) << i;
+                spaces |= ((long) (
+                    equals(word, ' ') | equals(word, '\n') |
+                    equals(word, '\r') | equals(word, '\t')
+                    )) << i;
+            }
+            // backslashes escape the next character when they end an odd
+            // sequence, the last one may escape the next block's first
+            backslashes &= ~escapedCarry;
+            follows = (backslashes << 1) | escapedCarry;
+            odd = backslashes & ~EVENS & ~follows;
+            sequences = odd + backslashes;
+            escapedCarry = (
+                (odd & backslashes) | ((odd | backslashes) & ~sequences)
+                ) >>> 63;
+            escaped = (EVENS ^ (sequences << 1)) & follows;
+            quotes &= ~escaped;
+            // strings from an opening quote to the byte before its closing
+            strings = prefix(quotes) ^ stringCarry;
+            stringCarry = strings >> 63;
+            operators &= ~strings;
+            values = ~(operators | spaces | quotes | strings);
+            bits = operators | quotes | (values & ~((values << 1) | valueCarry));
+            valueCarry = values >>> 63;
+            if (count + 64 > index.length) {
+                int[] grown = new int[index.length * 2];
+                System.arraycopy(index, 0, grown, 0, count);
+                index = grown;
+            }
+            while (bits != 0) {
+                shift = TRAILING[(int) (((bits & -bits) * DEBRUIJN) >>> 58)];
+                j = base + shift;
+                if (j < end)
+                    index[count++] = j;
+                bits &= bits - 1;
+            }
+        }
+        if (stringCarry != 0)
+            throw FALLBACK;
+    }
+
+    protected final java.lang.Object walk() throws Error {
+        if (k >= count)
+            throw FALLBACK;
+
+        int p = index[k++];
+        switch (bytes[p]) {
+        case '{': return object(new JSON.Object());
+        case '[': return array(new JSON.Array());
+        case '"': return string(p);
+        case 't': return literal(p, _true, Boolean.TRUE);
+        case 'f': return literal(p, _false, Boolean.FALSE);
+        case 'n': return literal(p, _null, null);
+        case '0': case '1': case '2': case '3': case '4':
+        case '5': case '6': case '7': case '8': case '9':
+        case '-':
+            seek(p);
+            java.lang.Object value = number();
+            end(at);
+            return value;
+        default:
+            throw FALLBACK;
+        }
+    }
+
+    private final byte operator() {
+        if (k >= count)
+            throw FALLBACK;
+
+        return bytes[index[k++]];
+    }
+
+    private final byte peek() {
+        if (k >= count)
+            throw FALLBACK;
+
+        return bytes[index[k]];
+    }
+
+    /**
+     * Check that a value ending before <code>p</code> is followed only by
+     * whitespaces up to the next indexed position.
+     */
+    private final void end(int p) {
+        int next = (k < count ? index[k]: end);
+        byte b;
+        for (; p < next; p++) {
+            b = bytes[p];
+            if (!(b == ' ' || b == '\n' || b == '\r' || b == '\t'))
+                throw FALLBACK;
+        }
+    }
+
+    private final java.lang.Object literal(
+        int p, String text, java.lang.Object value
+        ) {
+        int L = text.length();
+        if (p + L > end)
+            throw FALLBACK;
+
+        for (int i=1; i<L; i++)
+            if (bytes[p + i] != text.charAt(i))
+                throw FALLBACK;
+        end(p + L);
+        return value;
+    }
+
+    /**
+     * Decode the string opened at <code>p</code> and closed at the next
+     * indexed quote, copying it in bulk if it has only ASCII characters
+     * and no escape sequences.
+     */
+    private final java.lang.Object string(int p) throws Error {
+        if (k >= count || bytes[index[k]] != '"')
+            throw FALLBACK;
+
+        int q = index[k++], start = p + 1;
+        for (int i = start; i < q; i++)
+            if (bytes[i] < 0 || bytes[i] == '\\') {
+                seek(start);
+                return string();
+            }
+        return ascii(start, q);
+    }
+
+    private final java.lang.Object name(int p) throws Error {
+        if (k >= count || bytes[index[k]] != '"')
+            throw FALLBACK;
+
+        int q = index[k++], start = p + 1, hash = 0;
+        byte b;
+        for (int i = start; i < q; i++) {
+            b = bytes[i];
+            if (b < 0 || b == '\\') {
+                seek(start);
+                String name = (String) string();
+                return (symbols == null ? name: symbols.intern(name));
+            }
+            hash = 31*hash + b;
+        }
+        if (symbols == null)
+            return ascii(start, q);
+        else
+            return symbols.intern(bytes, start, q - start, hash);
+    }
+
+    private final java.lang.Object object(JSON.Object o) throws Error {
+        if (--containers < 0)
+            throw FALLBACK;
+
+        if (peek() == '}') {
+            k++;
+            return o;
+        }
+        int p;
+        java.lang.Object name;
+        while (true) {
+            p = index[k++];
+            if (bytes[p] != '"')
+                throw FALLBACK;
+
+            name = name(p);
+            if (--iterations < 0)
+                throw FALLBACK;
+
+            if (operator() != ':')
+                throw FALLBACK;
+
+            o.put(name, walk());
+            switch (operator()) {
+            case ',':
+                if (k >= count)
+                    throw FALLBACK;
+                continue;
+            case '}':
+                return o;
+            default:
+                throw FALLBACK;
+            }
+        }
+    }
+
+    private final java.lang.Object array(JSON.Array a) throws Error {
+        if (--containers < 0)
+            throw FALLBACK;
+
+        if (peek() == ']') {
+            k++;
+            return a;
+        }
+        while (true) {
+            if (--iterations < 0)
+                throw FALLBACK;
+
+            a.add(walk());
+            switch (operator()) {
+            case ',':
+                continue;
+            case ']':
+                return a;
+            default:
+                throw FALLBACK;
+            }
+        }
+    }
+
+}
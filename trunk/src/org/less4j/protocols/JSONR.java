@@ -23,13 +23,10 @@ import java.util.Map;
 import java.util.Iterator;
 import java.util.HashMap;
 import java.util.ArrayList;
-import java.util.Calendar;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.regex.Pattern;
 import java.math.BigDecimal;
-import java.text.SimpleDateFormat;
-import java.text.StringCharacterIterator;
-
-import org.less4j.simple.Objects;
 
 /**
  * Compile simple <a href="http://laurentszyster.be/jsonr/index.html">JSON 
@@ -187,9 +184,10 @@ public class JSONR extends JSON {
      *    
      *    public Object eval (String string) throws JSONR.Error {
      *        try {
-     *            string.replace('T', ' ');
      *            Calendar dt = Calendar.getInstance();
-     *            dt.setTime(format.parse(string));
+     *            synchronized (format) {
+     *                dt.setTime(format.parse(string.replace('T', ' ')));
+     *            }
      *            return dt;
      *        } catch (Exception e) {
      *            throw new JSONR.Error(DATETIME_VALUE_ERROR);
@@ -296,16 +294,25 @@ public class JSONR extends JSON {
         public java.lang.Object json() {return Boolean.FALSE;}
     }
 
-    protected static final class TypeInteger implements Type {
+    /**
+     * The types of integers, which can also test the primitive integers
+     * bound to the fields of a record.
+     */
+    protected static abstract class TypeIntegers implements Type {
+        protected abstract void test(int i) throws Error;
+    }
+
+    protected static final class TypeInteger extends TypeIntegers {
         protected static final String BIGINTEGER_VALUE_ERROR = 
             "Integer value error";
         public static final TypeInteger singleton = new TypeInteger();
+        protected final void test (int i) {}
         public final java.lang.Object value (java.lang.Object instance) 
         throws Error {
             if (instance instanceof Integer)
                 return instance;
             else if (instance instanceof String)
-                return new Integer((String) instance);
+                return JSON.integer(Integer.parseInt((String) instance));
             else
                 throw new Error(JSON.INTEGER_TYPE_ERROR);
         }
@@ -313,7 +320,7 @@ public class JSONR extends JSON {
         throws JSON.Error {
             if (string != null) {
                 try {
-                    return new Integer(string);
+                    return JSON.integer(Integer.parseInt(string));
                 } catch (Exception e) {
                     throw new Error(BIGINTEGER_VALUE_ERROR);
                 }
@@ -323,14 +330,27 @@ public class JSONR extends JSON {
         public final Type copy() {return singleton;}
         private static final String _name = "integer";
         public String name() {return _name;} 
-        private static final Integer _json = new Integer(0);
+        private static final Integer _json = JSON.integer(0);
         public java.lang.Object json() {return _json;}
     }
 
-    protected static final class TypeDouble implements Type {
+    /**
+     * The types of doubles, validated by the interpreter as the primitive
+     * doubles scanned from their source, boxed once valid.
+     */
+    protected static abstract class TypeDoubles implements Type {
+        public abstract java.lang.Object value(double d) throws Error;
+        protected abstract void test(double d) throws Error;
+    }
+
+    protected static final class TypeDouble extends TypeDoubles {
         protected static final String DOUBLE_VALUE_ERROR = 
             "Double value error";
         public static final TypeDouble singleton = new TypeDouble();
+        protected final void test (double d) {}
+        public final java.lang.Object value (double d) {
+            return new Double(d);
+        }
         public final java.lang.Object value (java.lang.Object instance) 
         throws Error {
             if (instance instanceof Double)
@@ -415,15 +435,20 @@ public class JSONR extends JSON {
     protected static final class TypeRegular implements Type {
         protected static final String IRREGULAR_STRING = 
             "irregular String";
-        protected Pattern pattern = null;
+        protected final Pattern pattern;
+        protected final Regular regular;
         protected TypeRegular (Pattern pattern) {
             this.pattern = pattern;
+            regular = (
+                pattern.flags() == 0 ? Regular.compile(pattern.pattern()): null
+                );
         } 
         public TypeRegular (String expression) {
-            pattern = Pattern.compile(expression);
+            this(Pattern.compile(expression));
         } 
         protected final java.lang.Object test (String string) throws Error {
-            if (pattern.matcher(string).matches())
+            if (regular == null ? 
+                pattern.matcher(string).matches(): regular.matches(string))
                 return string;
             else
                 throw new Error(IRREGULAR_STRING);
@@ -449,8 +474,21 @@ public class JSONR extends JSON {
     }
 
     protected static final class TypeArray implements Type {
-        public Type[] types = null;
-        public TypeArray (Type[] types) {this.types = types;}
+        public final Type[] types;
+        final Node node;
+        public TypeArray (Type[] types) {
+            this.types = types;
+            if (types.length == 0)
+                node = new NodeCollection(this, NodeUndefined.singleton);
+            else if (types.length == 1)
+                node = new NodeCollection(this, node(types[0]));
+            else {
+                Node[] items = new Node[types.length];
+                for (int i=0; i<types.length; i++)
+                    items[i] = node(types[i]);
+                node = new NodeRelation(this, items);
+            }
+        }
         public final java.lang.Object value (java.lang.Object instance) 
         throws Error {
             if (instance == null || instance instanceof ArrayList)
@@ -462,9 +500,6 @@ public class JSONR extends JSON {
         throws JSON.Error {
             return (new JSONR(this)).eval(string);
         }
-        protected final Iterator iterator() {
-            return Objects.iter(types);
-            }
         public static final Type singleton = new TypeArray(new Type[]{});
         public final Type copy() {
             if (this == singleton) 
@@ -483,16 +518,18 @@ public class JSONR extends JSON {
         public static final Type singleton = new TypeDictionary(new Type[]{
             new TypeRegular(".+"), TypeUndefined.singleton 
             });
-        public Type[] types;
+        public final Type[] types;
+        final Node node;
         public TypeDictionary (Type[] types) {
             this.types = types;
+            node = new NodeDictionary(this, node(types[0]), node(types[1]));
             }
         public final java.lang.Object value (java.lang.Object instance) 
         throws Error {
             if (instance == null)
                 return null;
-            else if (instance instanceof HashMap) {
-                HashMap map = (HashMap) instance;
+            else if (instance instanceof Map) {
+                Map map = (Map) instance;
                 if (map.keySet().iterator().hasNext())
                     return map;
                 else
@@ -517,18 +554,19 @@ public class JSONR extends JSON {
         protected static final String IRREGULAR_OBJECT = 
             "irregular Namespace";
         public static final Type singleton = new TypeNamespace(
-            new JSON.Object()
+            new HashMap()
             );
-        public Set names;
-        public Set mandatory;
-        public HashMap namespace;
+        public final Set names;
+        public final Set mandatory;
+        public final HashMap namespace;
+        final Node node;
         public TypeNamespace (HashMap ns) {
             namespace = ns;
             names = ns.keySet();
             mandatory = new HashSet();
             Iterator i = names.iterator();
             while (i.hasNext()) {
-                String name = (String) i.next();
+                String name = JSON.SYMBOLS.intern((String) i.next());
                 java.lang.Object value = namespace.get(name); 
                 if (!(
                     value instanceof TypeUndefined ||
@@ -538,13 +576,14 @@ public class JSONR extends JSON {
                     ))
                     mandatory.add(name);
                 }
+            node = new NodeNamespace(this);
             }
         public final java.lang.Object value (java.lang.Object instance) 
         throws Error {
             if (instance == null)
                 return null;
-            else if (instance instanceof HashMap) {
-                HashMap map = (HashMap) instance;
+            else if (instance instanceof Map) {
+                Map map = (Map) instance;
                 if (map.keySet().containsAll(mandatory))
                     return map;
                 else
@@ -560,7 +599,7 @@ public class JSONR extends JSON {
             if (this == singleton) return singleton;
             
             String name;
-            JSON.Object o = new JSON.Object();
+            HashMap o = new HashMap();
             Iterator iter = namespace.keySet().iterator();
             while (iter.hasNext()) {
                 name = (String) iter.next();
@@ -603,33 +642,33 @@ public class JSONR extends JSON {
     protected static final class TypeDateTime implements JSONR.Type {
         public static final String name = "DateTime"; 
         public static final Type singleton = new TypeDateTime();
-        protected static final SimpleDateFormat format = 
-            new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        protected static final String pattern = "yyyy-MM-ddTHH:mm:ss";
         protected static final String DATETIME_VALUE_ERROR = 
             "DateTime value error";
         public final java.lang.Object value (java.lang.Object instance) 
         throws JSONR.Error {
+            if (instance instanceof DateTime)
+                return instance;
+            
             return eval((String) STRING.value(instance));
         }
         public final java.lang.Object eval (String string) 
         throws JSONR.Error {
-            try {
-                string.replace('T', ' ');
-                Calendar dt = Calendar.getInstance();
-                dt.setTime(format.parse(string));
-                return dt;
-            } catch (Exception e) {
+            long time = DateTime.parse(string);
+            if (time == DateTime.INVALID)
                 throw new JSONR.Error(DATETIME_VALUE_ERROR);
-            }
+            
+            return new DateTime(time);
         }
         public final Type copy() {return singleton;}        
         private static final String _name = "datetime";
         public String name() {return _name;} 
-        public java.lang.Object json() {return format.toPattern();}
+        public java.lang.Object json() {return pattern;}
     }
     
     /**
-     * Cast java.util.Calendar objects from JSON DateTime strings.
+     * Cast immutable <code>DateTime</code> instants from ISO 8601 strings,
+     * read in UTC when they have no zone.
      */
     public static final Type DATETIME = TypeDateTime.singleton;
     
@@ -649,21 +688,27 @@ public class JSONR extends JSON {
     
     // the built-in regular numeric types
     
-    protected static final class TypeIntegerAbsolute implements Type {
+    protected static final class TypeIntegerAbsolute extends TypeIntegers {
         private static final String POSITIVE_INTEGER_OVERFLOW = 
             "positive integer overflow";
         private static final String NEGATIVE_INTEGER = 
             "negative integer";
-        Integer limit;
-        public TypeIntegerAbsolute (Integer gt) {this.limit = gt;}
-        protected final java.lang.Object test (Integer i) throws Error {
-            if (i.intValue() < 0)
+        final Integer limit;
+        final int max;
+        public TypeIntegerAbsolute (Integer gt) {
+            this.limit = gt;
+            this.max = gt.intValue();
+        }
+        protected final void test (int i) throws Error {
+            if (i < 0)
                 throw new Error(NEGATIVE_INTEGER);
-            else if (i.compareTo(limit) <= 0)
-                return i;
-            else
+            else if (i > max)
                 throw new Error(POSITIVE_INTEGER_OVERFLOW);
         } 
+        protected final java.lang.Object test (Integer i) throws Error {
+            test(i.intValue());
+            return i;
+        } 
         public final java.lang.Object value (java.lang.Object instance) 
         throws Error {
             return test((Integer) INTEGER.value(instance));
@@ -677,19 +722,21 @@ public class JSONR extends JSON {
         public java.lang.Object json() {return limit;}
     }
 
-    protected static final class TypeIntegerRelative implements Type {
+    protected static final class TypeIntegerRelative extends TypeIntegers {
         private static final String INTEGER_OVERFLOW = 
             "integer overflow";
-        int limit;
+        final int limit;
         public TypeIntegerRelative (Integer gt) {
             this.limit = Math.abs(gt.intValue());
         }
+        protected final void test (int i) throws Error {
+            if (!(Math.abs(i) < limit))
+                throw new Error(INTEGER_OVERFLOW);
+        } 
         protected final java.lang.Object test (Integer i) 
         throws Error {
-            if (Math.abs(i.intValue()) < limit)
-                return i;
-            else
-                throw new Error(INTEGER_OVERFLOW);
+            test(i.intValue());
+            return i;
         } 
         public final java.lang.Object value (java.lang.Object instance) 
         throws Error {
@@ -700,38 +747,47 @@ public class JSONR extends JSON {
             return test((Integer) INTEGER.eval(string));
         }
         public final Type copy() {
-            return new TypeIntegerRelative(new Integer(limit));
+            return new TypeIntegerRelative(JSON.integer(limit));
         }
         private static final String _name = "integerRelative";
         public String name() {return _name;} 
-        public java.lang.Object json() {return new Integer(limit);}
+        public java.lang.Object json() {return JSON.integer(limit);}
     }
 
     private static final Double _double_zero = new Double(0.0);
     
-    protected static final class TypeDoubleAbsolute implements Type {
+    protected static final class TypeDoubleAbsolute extends TypeDoubles {
         private static final String POSITIVE_DOUBLE_OVERFLOW = 
             "positive double overflow";
         private static final String NEGATIVE_DOUBLE = 
             "negative double";
-        Double limit;
-        public TypeDoubleAbsolute (Double gt) {this.limit = gt;}
-        protected final java.lang.Object test (Double d) 
-        throws Error {
-            if (d.compareTo(_double_zero) < 0)
+        final Double limit;
+        final double max;
+        public TypeDoubleAbsolute (Double gt) {
+            this.limit = gt;
+            this.max = gt.doubleValue();
+            }
+        protected final void test (double d) throws Error {
+            if (Double.compare(d, 0.0) < 0)
                 throw new Error(NEGATIVE_DOUBLE);
-            else if (d.compareTo(limit) <= 0)
-                return d;
-            else
+            else if (Double.compare(d, max) > 0)
                 throw new Error(POSITIVE_DOUBLE_OVERFLOW);
         } 
+        public final java.lang.Object value (double d) throws Error {
+            test(d);
+            return new Double(d);
+        }
         public final java.lang.Object value (java.lang.Object instance) 
         throws Error {
-            return test((Double) DOUBLE.value(instance));
+            Double d = (Double) DOUBLE.value(instance);
+            test(d.doubleValue());
+            return d;
         }
         public final java.lang.Object eval (String string) 
         throws JSON.Error {
-            return test((Double) DOUBLE.eval(string));
+            Double d = (Double) DOUBLE.eval(string);
+            test(d.doubleValue());
+            return d;
         }
         public final Type copy() {return new TypeDoubleAbsolute(limit);}
         private static final String _name = "doubleAbsolute";
@@ -739,26 +795,32 @@ public class JSONR extends JSON {
         public java.lang.Object json() {return limit;}
     }
     
-    protected static final class TypeDoubleRelative implements Type {
+    protected static final class TypeDoubleRelative extends TypeDoubles {
         private static final String DOUBLE_OVERFLOW = 
             "double overflow";
-        double limit;
+        final double limit;
         public TypeDoubleRelative (double v) {
             this.limit = Math.abs(v);
             }
-        protected final java.lang.Object test (Double d) throws Error {
-            if (Math.abs(d.doubleValue()) <= limit)
-                return d;
-            else
+        protected final void test (double d) throws Error {
+            if (!(Math.abs(d) <= limit))
                 throw new Error(DOUBLE_OVERFLOW);
         } 
+        public final java.lang.Object value (double d) throws Error {
+            test(d);
+            return new Double(d);
+        }
         public final java.lang.Object value (java.lang.Object instance) 
         throws Error {
-            return test((Double) DOUBLE.value(instance));
+            Double d = (Double) DOUBLE.value(instance);
+            test(d.doubleValue());
+            return d;
         }
         public final java.lang.Object eval (String string) 
         throws JSON.Error {
-            return test((Double) DOUBLE.eval(string));
+            Double d = (Double) DOUBLE.eval(string);
+            test(d.doubleValue());
+            return d;
         }
         public final Type copy() {return new TypeDoubleRelative(limit);}
         private static final String _name = "doubleRelative";
@@ -773,8 +835,8 @@ public class JSONR extends JSON {
             "positive decimal overflow";
         private static final String NEGATIVE_DECIMAL = 
             "negative decimal";
-        BigDecimal limit;
-        int scale;
+        final BigDecimal limit;
+        final int scale;
         public TypeDecimalAbsolute (BigDecimal lt) {
             limit = lt;
             scale = limit.scale(); 
@@ -806,8 +868,8 @@ public class JSONR extends JSON {
     protected static final class TypeDecimalRelative implements Type {
         private static final String DECIMAL_OVERFLOW = 
             "decimal overflow";
-        BigDecimal limit;
-        int scale;
+        final BigDecimal limit;
+        final int scale;
         public TypeDecimalRelative (BigDecimal gt) {
             limit = gt;
             scale = limit.scale(); 
@@ -834,6 +896,594 @@ public class JSONR extends JSON {
         public java.lang.Object json() {return limit;}
     }
     
+    /**
+     * A node of the validator graph compiled from a <code>Type</code>, 
+     * linked directly to the nodes of its items or members.
+     * 
+     * @p The interpreter scans scalars and hands objects and arrays to 
+     * the node of their type, leaves validate scalars with their type and
+     * throw irregular errors for containers.
+     */
+    protected static class Node {
+        protected final Type type;
+        protected final TypeDoubles doubles;
+        protected final TypeIntegers integers;
+        protected Node (Type type) {
+            this.type = type;
+            this.doubles = (
+                type instanceof TypeDoubles ? (TypeDoubles) type: null
+                );
+            this.integers = (
+                type instanceof TypeIntegers ? (TypeIntegers) type: null
+                );
+        }
+        protected java.lang.Object object (JSONR json) throws JSON.Error {
+            throw json.error(TypeNamespace.IRREGULAR_OBJECT);
+        }
+        protected java.lang.Object array (JSONR json) throws JSON.Error {
+            throw json.error(IRREGULAR_ARRAY);
+        }
+        protected java.lang.Object validate (java.lang.Object instance) 
+        throws Error {
+            return type.value(instance);
+        }
+    }
+    
+    protected static final class NodeUndefined extends Node {
+        protected static final Node singleton = new NodeUndefined();
+        private NodeUndefined () {super(TypeUndefined.singleton);}
+        protected final java.lang.Object object (JSONR json) 
+        throws JSON.Error {
+            json.next();
+            return json.object(new JSON.Object());
+        }
+        protected final java.lang.Object array (JSONR json) 
+        throws JSON.Error {
+            json.next();
+            return json.array(new JSON.Array());
+        }
+        protected final java.lang.Object validate (
+            java.lang.Object instance
+            ) {
+            return instance;
+        }
+    }
+    
+    protected static final class NodeCollection extends Node {
+        protected final Node item;
+        protected NodeCollection (TypeArray type, Node item) {
+            super(type);
+            this.item = item;
+        }
+        protected final java.lang.Object array (JSONR json) 
+        throws JSON.Error {
+            json.next();
+            return items(json, new JSON.Array());
+        }
+        protected final List items (JSONR json, List a) 
+        throws JSON.Error {
+            if (--json.containers < 0 && !json.budget())
+                throw json.error(CONTAINERS_OVERFLOW);
+            
+            int i = 0;
+            java.lang.Object token = json.value(item, i++);
+            while (token != JSON.ARRAY) {
+                if (token==JSON.COLON || token==JSON.COMMA || token==JSON.OBJECT)
+                    throw json.error(VALUE_EXPECTED);
+                
+                if (--json.iterations < 0 && !json.budget())
+                    throw json.error(ITERATIONS_OVERFLOW);
+             
+                a.add(token);
+                token = json.value(); 
+                if (token == JSON.COMMA)
+                    token = json.value(item, i++);
+            }
+            return a;
+        }
+        protected final java.lang.Object validate (
+            java.lang.Object instance
+            ) throws Error {
+            if (type.value(instance) == null)
+                return null;
+            
+            List array = (List) instance;
+            for (int i=0, L=array.size(); i<L; i++)
+                array.set(i, item.validate(array.get(i)));
+            return array;
+        }
+    }
+    
+    protected static final class NodeRelation extends Node {
+        protected final Node[] items;
+        protected NodeRelation (TypeArray type, Node[] items) {
+            super(type);
+            this.items = items;
+        }
+        protected final java.lang.Object array (JSONR json) 
+        throws JSON.Error {
+            json.next();
+            return items(json, new JSON.Array());
+        }
+        protected final List items (JSONR json, List a) 
+        throws JSON.Error {
+            if (--json.containers < 0 && !json.budget())
+                throw json.error(CONTAINERS_OVERFLOW);
+            
+            int i = 0;
+            java.lang.Object token = json.value(items[0], i++);
+            while (token != JSON.ARRAY) {
+                if (token==JSON.COLON || token==JSON.COMMA || token==JSON.OBJECT)
+                    throw json.error(VALUE_EXPECTED);
+                
+                if (--json.iterations < 0 && !json.budget())
+                    throw json.error(ITERATIONS_OVERFLOW);
+             
+                a.add(token);
+                token = json.value(); 
+                if (token == JSON.COMMA)
+                    if (i < items.length)
+                        token = json.value(items[i], i++);
+                    else
+                        throw json.error(new Error(ARRAY_OVERFLOW));
+            }
+            if (i < items.length)
+                throw json.error(PARTIAL_ARRAY);
+            
+            return a;
+        }
+        protected final java.lang.Object validate (
+            java.lang.Object instance
+            ) throws Error {
+            if (type.value(instance) == null)
+                return null;
+            
+            List array = (List) instance;
+            int L = array.size();
+            if (L < items.length)
+                throw new Error(PARTIAL_ARRAY);
+            else if (L > items.length)
+                throw new Error(ARRAY_OVERFLOW);
+            
+            for (int i=0; i<L; i++)
+                array.set(i, items[i].validate(array.get(i)));
+            return array;
+        }
+    }
+    
+    /**
+     * The node of a namespace, with its names interned in the order of 
+     * their nodes and a bitset of the mandatory ones.
+     */
+    protected static final class NodeNamespace extends Node {
+        protected final String[] names;
+        protected final Node[] nodes;
+        protected final long[] mandatory;
+        protected final HashMap indexes = new HashMap();
+        protected NodeNamespace (TypeNamespace type) {
+            super(type);
+            int L = type.namespace.size();
+            names = new String[L];
+            nodes = new Node[L];
+            mandatory = new long[(L + 63) / 64 + (L == 0 ? 1: 0)];
+            Iterator iter = type.namespace.keySet().iterator();
+            String name;
+            for (int i=0; i<L; i++) {
+                name = JSON.SYMBOLS.intern((String) iter.next());
+                names[i] = name;
+                nodes[i] = node((Type) type.namespace.get(name));
+                indexes.put(name, JSON.integer(i));
+                if (type.mandatory.contains(name))
+                    mandatory[i >> 6] |= 1L << i;
+            }
+        }
+        /**
+         * Return the index of a name, found by identity first since the
+         * interpreter interns names, or -1.
+         */
+        protected final int index (String name) {
+            for (int i=0; i<names.length; i++)
+                if (names[i] == name)
+                    return i;
+            Integer i = (Integer) indexes.get(name);
+            return (i == null ? -1: i.intValue());
+        }
+        protected final java.lang.Object object (JSONR json) 
+        throws JSON.Error {
+            json.next();
+            JSON.Object o = new JSON.Object();
+            if (members(json, o))
+                return o;
+            else
+                throw json.error(new Error(TypeNamespace.IRREGULAR_OBJECT));
+        }
+        /**
+         * Evaluate the members of an object into <code>o</code>, return 
+         * <code>true</code> if all mandatory names were found.
+         */
+        protected final boolean members (JSONR json, Map o) 
+        throws JSON.Error {
+            if (--json.containers < 0 && !json.budget())
+                throw json.error(CONTAINERS_OVERFLOW);
+            
+            long seen = 0;
+            long[] more = (mandatory.length > 1 ? new long[mandatory.length]: null);
+            int i;
+            String name; 
+            java.lang.Object val;
+            java.lang.Object token = json.member();
+            while (token != JSON.OBJECT) {
+                if (!(token instanceof String))
+                    throw json.error(STRING_EXPECTED);
+                
+                if (--json.iterations < 0 && !json.budget())
+                    throw json.error(ITERATIONS_OVERFLOW);
+                
+                name = (String) token;
+                i = index(name);
+                if (json.value() == JSON.COLON) {
+                    if (i < 0)
+                        throw json.error(new Error(NAME_ERROR));
+                    else
+                        val = json.value(nodes[i], name);
+                    if (val==JSON.COLON || val==JSON.COMMA || val==JSON.OBJECT || val==JSON.ARRAY)
+                        throw json.error(VALUE_EXPECTED);
+                    
+                    o.put(name, val);
+                    if (more == null)
+                        seen |= 1L << i;
+                    else
+                        more[i >> 6] |= 1L << i;
+                    token = json.value();
+                    if (token == JSON.COMMA)
+                        token = json.member();
+                } else {
+                    throw json.error(COLON_EXPECTED);
+                }
+            }
+            if (more == null)
+                return (seen & mandatory[0]) == mandatory[0];
+            
+            for (i=0; i<more.length; i++)
+                if ((more[i] & mandatory[i]) != mandatory[i])
+                    return false;
+            return true;
+        }
+        protected final java.lang.Object validate (
+            java.lang.Object instance
+            ) throws Error {
+            if (type.value(instance) == null)
+                return null;
+            
+            Map namespace = (Map) instance;
+            Iterator names = namespace.keySet().iterator();
+            String name;
+            int i;
+            while (names.hasNext()) {
+                name = (String) names.next();
+                i = index(name);
+                if (i < 0)
+                    throw new Error(NAME_ERROR);
+                
+                namespace.put(name, nodes[i].validate(namespace.get(name)));
+            }
+            return namespace;
+        }
+    }
+    
+    protected static final class NodeDictionary extends Node {
+        protected final Node key;
+        protected final Node value;
+        protected NodeDictionary (TypeDictionary type, Node key, Node value) {
+            super(type);
+            this.key = key;
+            this.value = value;
+        }
+        protected final java.lang.Object object (JSONR json) 
+        throws JSON.Error {
+            json.next();
+            return json.typed(type, members(json, new JSON.Object()));
+        }
+        protected final Map members (JSONR json, Map o) 
+        throws JSON.Error {
+            if (--json.containers < 0 && !json.budget())
+                throw json.error(CONTAINERS_OVERFLOW);
+            
+            java.lang.Object val;
+            java.lang.Object token = json.value(key);
+            while (token != JSON.OBJECT) {
+                if (!(token instanceof String))
+                    throw json.error(STRING_EXPECTED);
+                
+                if (--json.iterations < 0 && !json.budget())
+                    throw json.error(ITERATIONS_OVERFLOW);
+                
+                if (json.value() == JSON.COLON) {
+                    val = json.value(value);
+                    if (val==JSON.COLON || val==JSON.COMMA || val==JSON.OBJECT || val==JSON.ARRAY)
+                        throw json.error(VALUE_EXPECTED);
+                    
+                    o.put(token, val);
+                    token = json.value(key);
+                    if (token == JSON.COMMA)
+                        token = json.value();
+                } else {
+                    throw json.error(COLON_EXPECTED);
+                }
+            }
+            return o;
+        }
+        protected final java.lang.Object validate (
+            java.lang.Object instance
+            ) throws Error {
+            if (type.value(instance) == null)
+                return null;
+            
+            Map dictionary = (Map) instance;
+            Iterator keys = dictionary.keySet().iterator();
+            String name;
+            while (keys.hasNext()) {
+                name = (String) key.validate(keys.next());
+                dictionary.put(name, value.validate(dictionary.get(name)));
+            }
+            return dictionary;
+        }
+    }
+    
+    /**
+     * The node of a namespace bound to the public fields of a record 
+     * class, filled during the scan instead of a <code>JSON.Object</code>.
+     * 
+     * @p Integers, doubles and booleans bound to primitive fields are 
+     * scanned, tested and set as primitives, namespaces bound to classes
+     * with public fields are bound to new records. Other members are 
+     * evaluated by their node and converted like <code>JSON.Codec</code>
+     * does, members without a field are validated and dropped.
+     */
+    protected static final class NodeRecord extends Node {
+        private static final int _value = 0;
+        private static final int _int = 1;
+        private static final int _long = 2;
+        private static final int _short = 3;
+        private static final int _byte = 4;
+        private static final int _double = 5;
+        private static final int _float = 6;
+        private static final int _boolean = 7;
+        private static final int _record = 8;
+        protected final Class record;
+        protected final NodeNamespace namespace;
+        protected final java.lang.reflect.Field[] fields;
+        protected final int[] kinds;
+        protected final NodeRecord[] records;
+        protected NodeRecord (NodeNamespace namespace, Class record) {
+            super(namespace.type);
+            this.namespace = namespace;
+            this.record = record;
+            int L = namespace.names.length;
+            fields = new java.lang.reflect.Field[L];
+            kinds = new int[L];
+            records = new NodeRecord[L];
+            java.lang.reflect.Field field;
+            Class type;
+            Node node;
+            int modifiers;
+            for (int i=0; i<L; i++) {
+                try {
+                    field = record.getField(namespace.names[i]);
+                } catch (NoSuchFieldException e) {
+                    continue;
+                }
+                modifiers = field.getModifiers();
+                if (
+                    java.lang.reflect.Modifier.isStatic(modifiers) ||
+                    java.lang.reflect.Modifier.isFinal(modifiers)
+                    )
+                    continue;
+                try {
+                    field.setAccessible(true);
+                } catch (SecurityException e) {;}
+                fields[i] = field;
+                type = field.getType();
+                node = namespace.nodes[i];
+                if (node.integers != null && type == Integer.TYPE)
+                    kinds[i] = _int;
+                else if (node.integers != null && type == Long.TYPE)
+                    kinds[i] = _long;
+                else if (node.integers != null && type == Short.TYPE)
+                    kinds[i] = _short;
+                else if (node.integers != null && type == Byte.TYPE)
+                    kinds[i] = _byte;
+                else if (node.doubles != null && type == Double.TYPE)
+                    kinds[i] = _double;
+                else if (node.doubles != null && type == Float.TYPE)
+                    kinds[i] = _float;
+                else if (
+                    node.type instanceof TypeBoolean && type == Boolean.TYPE
+                    )
+                    kinds[i] = _boolean;
+                else if (
+                    node instanceof NodeNamespace && 
+                    !type.isPrimitive() && !type.isArray() &&
+                    !type.isAssignableFrom(JSON.Object.class) &&
+                    JSON.codec(type).coded()
+                    ) {
+                    kinds[i] = _record;
+                    records[i] = record((NodeNamespace) node, type);
+                }
+            }
+        }
+        protected final java.lang.Object object (JSONR json) 
+        throws JSON.Error {
+            json.next();
+            java.lang.Object instance;
+            try {
+                instance = record.getDeclaredConstructor(
+                    new Class[0]
+                    ).newInstance(new java.lang.Object[0]);
+            } catch (Exception e) {
+                throw json.error(INSTANCIATION_ERROR);
+            }
+            if (members(json, instance))
+                return instance;
+            else
+                throw json.error(new Error(TypeNamespace.IRREGULAR_OBJECT));
+        }
+        /**
+         * Evaluate the members of an object into the fields of a record, 
+         * return <code>true</code> if all mandatory names were found.
+         */
+        protected final boolean members (JSONR json, java.lang.Object o) 
+        throws JSON.Error {
+            if (--json.containers < 0 && !json.budget())
+                throw json.error(CONTAINERS_OVERFLOW);
+            
+            long[] mandatory = namespace.mandatory;
+            long seen = 0;
+            long[] more = (mandatory.length > 1 ? new long[mandatory.length]: null);
+            int i;
+            String name; 
+            java.lang.Object token = json.member();
+            while (token != JSON.OBJECT) {
+                if (!(token instanceof String))
+                    throw json.error(STRING_EXPECTED);
+                
+                if (--json.iterations < 0 && !json.budget())
+                    throw json.error(ITERATIONS_OVERFLOW);
+                
+                name = (String) token;
+                i = namespace.index(name);
+                if (json.value() == JSON.COLON) {
+                    if (i < 0)
+                        throw json.error(new Error(NAME_ERROR));
+                    
+                    json.push(name, 0);
+                    member(json, i, o);
+                    json.pop();
+                    if (more == null)
+                        seen |= 1L << i;
+                    else
+                        more[i >> 6] |= 1L << i;
+                    token = json.value();
+                    if (token == JSON.COMMA)
+                        token = json.member();
+                } else {
+                    throw json.error(COLON_EXPECTED);
+                }
+            }
+            if (more == null)
+                return (seen & mandatory[0]) == mandatory[0];
+            
+            for (i=0; i<more.length; i++)
+                if ((more[i] & mandatory[i]) != mandatory[i])
+                    return false;
+            return true;
+        }
+        /**
+         * Evaluate the value of member <code>i</code> into its field, 
+         * directly for the primitive ones.
+         */
+        protected final void member (
+            JSONR json, int i, java.lang.Object o
+            ) throws JSON.Error {
+            Node node = namespace.nodes[i];
+            java.lang.reflect.Field field = fields[i];
+            while (Character.isWhitespace(json.c)) json.next();
+            char c = json.c;
+            boolean number = (c == '-' || (c >= '0' && c <= '9'));
+            try {
+                switch (kinds[i]) {
+                case _int: case _long: case _short: case _byte:
+                    if (number) {
+                        long l = json.integral();
+                        if (
+                            json.c == '.' || json.c == 'e' || json.c == 'E' ||
+                            l < Integer.MIN_VALUE || l > Integer.MAX_VALUE
+                            )
+                            throw json.error(new Error(INTEGER_TYPE_ERROR));
+                        
+                        int n = (int) l;
+                        json.tested(node.integers, n);
+                        if (kinds[i] == _int)
+                            field.setInt(o, n);
+                        else if (kinds[i] == _long)
+                            field.setLong(o, n);
+                        else if (kinds[i] == _short)
+                            field.setShort(o, (short) n);
+                        else
+                            field.setByte(o, (byte) n);
+                        return;
+                    }
+                    break;
+                case _double: case _float:
+                    if (number) {
+                        double d = json.real();
+                        json.tested(node.doubles, d);
+                        if (kinds[i] == _double)
+                            field.setDouble(o, d);
+                        else
+                            field.setFloat(o, (float) d);
+                        return;
+                    }
+                    break;
+                case _boolean:
+                    if (c == 't' || c == 'f') {
+                        field.setBoolean(
+                            o, Boolean.TRUE.equals(json.value(node))
+                            );
+                        return;
+                    }
+                    break;
+                case _record:
+                    if (c == '{') {
+                        field.set(o, records[i].object(json));
+                        return;
+                    }
+                    break;
+                }
+                java.lang.Object value = json.value(node);
+                if (value==JSON.COLON || value==JSON.COMMA || value==JSON.OBJECT || value==JSON.ARRAY)
+                    throw json.error(VALUE_EXPECTED);
+                
+                if (field != null) {
+                    try {
+                        value = Codec.value(value, field.getType());
+                    } catch (JSON.Error e) {
+                        throw json.error(e);
+                    }
+                    field.set(o, value);
+                }
+            } catch (IllegalAccessException e) {
+                throw json.error(INSTANCIATION_ERROR);
+            }
+        }
+        protected final java.lang.Object validate (
+            java.lang.Object instance
+            ) throws Error {
+            return namespace.validate(instance);
+        }
+    }
+    
+    /**
+     * Return the node compiled for a type, built with each array, 
+     * namespace and dictionary type.
+     * 
+     * @p Types must not be altered after they were compiled, copy them 
+     * instead.
+     */
+    protected static final Node node (Type type) {
+        if (type == TypeUndefined.singleton)
+            return NodeUndefined.singleton;
+        
+        else if (type instanceof TypeArray)
+            return ((TypeArray) type).node;
+        else if (type instanceof TypeNamespace)
+            return ((TypeNamespace) type).node;
+        else if (type instanceof TypeDictionary)
+            return ((TypeDictionary) type).node;
+        else
+            return new Node(type);
+    }
+    
     /**
      * Recursively validates an object against a <code>JSONR.Type</code>
      * or throw a <code>JSONR.Error</code>.
@@ -853,151 +1503,353 @@ public class JSONR extends JSON {
         java.lang.Object instance, Type type
         ) 
     throws Error {
-        if (type instanceof TypeArray) {
-            if (type.value(instance) == null) // null
-                return null; 
-            else { // array
-                List array = (List) instance;
-                Iterator values = array.iterator();
-                Iterator types = ((TypeArray) type).iterator();
-                Type t = (Type) types.next();
-                int i = 0;
-                if (types.hasNext()) // relation
-                    do {
-                        array.set(i++, validate(values.next(), t));
-                        t = (Type) types.next();
-                    } while (types.hasNext());
-                else { // collection
-                    do {
-                        array.set(i++, validate(values.next(), t));
-                    } while (values.hasNext());
-                }
-                return array;
-            }
-        } else if (type instanceof TypeNamespace) { // namespace
-            if (type.value(instance) == null) // null
-                return null;
-            else { // object with all mandatory properties
-                Map namespace = (Map) instance;
-                TypeNamespace types = (TypeNamespace) type;
-                Iterator names = namespace.keySet().iterator();
-                String name;
-                while (names.hasNext()) { // validate all present properties 
-                    name = (String) names.next();
-                    namespace.put(name, validate(
-                        namespace.get(name), (Type) types.namespace.get(name)
-                        ));
-                }
-                return namespace;
-            }
-        } else if (type instanceof TypeDictionary) { // dictionary
-            if (type.value(instance) == null) // null
-                return null;
-            else { // 
-                Map dictionary = (Map) instance;
-                Type[] types = ((TypeDictionary) type).types;
-                Iterator keys = dictionary.keySet().iterator();
-                String key;
-                while (keys.hasNext()) { // validate all keys and values 
-                    key = (String) types[0].value(keys.next());
-                    dictionary.put(key, validate(
-                        dictionary.get(key), types[1]
-                        ));
-                }
-                return dictionary;
+        return node(type).validate(instance);
+    }
+    
+    /**
+     * The key of a compiled type in the cache: the class of a scalar 
+     * pattern and its value, or the kind of a container and the types 
+     * compiled for its items or members, compared by identity.
+     */
+    protected static final class Key {
+        protected final java.lang.Object kind;
+        protected final java.lang.Object value;
+        protected final Type[] types;
+        protected final int hash;
+        protected Key (java.lang.Object kind, java.lang.Object value, Type[] types) {
+            this.kind = kind;
+            this.value = value;
+            this.types = types;
+            int h = System.identityHashCode(kind);
+            if (value instanceof String[]) {
+                String[] names = (String[]) value;
+                for (int i=0; i<names.length; i++)
+                    h = 31*h + names[i].hashCode();
+            } else if (value != null)
+                h = 31*h + value.hashCode();
+            if (types != null)
+                for (int i=0; i<types.length; i++)
+                    h = 31*h + System.identityHashCode(types[i]);
+            this.hash = h;
+        }
+        public final int hashCode () {return hash;}
+        public final boolean equals (java.lang.Object o) {
+            if (!(o instanceof Key))
+                return false;
+            
+            Key key = (Key) o;
+            if (key.hash != hash || key.kind != kind)
+                return false;
+            
+            if (value instanceof String[]) {
+                if (!(key.value instanceof String[]) || !Arrays.equals(
+                    (String[]) value, (String[]) key.value
+                    ))
+                    return false;
+            } else if (value == null ? key.value != null: !value.equals(key.value))
+                return false;
+            
+            if (types == null || key.types == null)
+                return types == key.types;
+            
+            if (types.length != key.types.length)
+                return false;
+            
+            for (int i=0; i<types.length; i++)
+                if (types[i] != key.types[i])
+                    return false;
+            return true;
+        }
+    }
+    
+    /**
+     * A bounded and synchronized cache of compiled types, evicting the 
+     * least recently used.
+     */
+    protected static final class Cache extends LinkedHashMap {
+        private static final long serialVersionUID = 0L; 
+        protected final int size;
+        protected Cache (int size) {
+            super(16, 0.75f, true);
+            this.size = size;
+        }
+        protected final boolean removeEldestEntry (Map.Entry eldest) {
+            return size() > size;
+        }
+        /**
+         * Return the type cached for <code>key</code> or cache and return 
+         * <code>type</code>.
+         */
+        protected final synchronized Type intern (Key key, Type type) {
+            Type cached = (Type) get(key);
+            if (cached != null)
+                return cached;
+            
+            put(key, type);
+            return type;
+        }
+        protected final synchronized Type type (Key key) {
+            return (Type) get(key);
+        }
+    }
+    
+    /**
+     * The types compiled by this process, shared by all the patterns and
+     * sub-patterns that are identical, up to 4096 of them.
+     * 
+     * @p Compiled types must not be altered, copy them instead.
+     */
+    protected static final Cache COMPILED = new Cache(4096);
+    
+    /**
+     * The record nodes bound by this process, for each namespace and 
+     * class, up to 1024 of them.
+     */
+    protected static final Cache RECORDS = new Cache(1024);
+    
+    /**
+     * Return the cached node binding a namespace to a record class.
+     */
+    protected static final NodeRecord record (
+        NodeNamespace namespace, Class type
+        ) {
+        Key key = new Key(type, null, new Type[]{namespace.type});
+        synchronized (RECORDS) {
+            NodeRecord record = (NodeRecord) RECORDS.get(key);
+            if (record == null) {
+                record = new NodeRecord(namespace, type);
+                RECORDS.put(key, record);
             }
-        } else
-            return type.value(instance);
+            return record;
+        }
     }
     
-    protected static final Type compile(
-        java.lang.Object regular, Map extensions, HashMap cache
+    /**
+     * Generate the source of a record class for a namespace, with a public
+     * field for each member named by a Java identifier: primitive for 
+     * integers, doubles and booleans and a nested class for namespaces.
+     * 
+     * @pre System.out.print(JSONR.source(
+     *    JSONR.compile("{\"seconds\": 3599, \"ms\": 99}"), "Job"
+     *    ));
+     * 
+     * @p prints
+     * 
+     * @pre public static class Job {
+     *    public int ms;
+     *    public int seconds;
+     *}
+     * 
+     * @param type of a namespace
+     * @param name of the class
+     * @return the source of a public static class
+     * @throws Error if <code>type</code> is not a namespace
+     */
+    public static final String source (Type type, String name) 
+    throws Error {
+        if (!(type instanceof TypeNamespace))
+            throw new Error(JSON.OBJECT_TYPE_ERROR);
+        
+        StringBuffer sb = new StringBuffer();
+        source(sb, (TypeNamespace) type, name, "");
+        return sb.toString();
+    }
+    
+    protected static final void source (
+        StringBuffer sb, TypeNamespace type, String name, String indent
         ) {
-        String pattern = JSON.encode(regular);
-        if (cache.containsKey(pattern))
-            return (Type) cache.get(pattern);
+        sb.append(indent).append("public static class ");
+        sb.append(name).append(" {\n");
+        java.lang.Object[] names = type.namespace.keySet().toArray();
+        Arrays.sort(names);
+        ArrayList nested = new ArrayList();
+        String member, field;
+        Type t;
+        for (int i=0; i<names.length; i++) {
+            member = (String) names[i];
+            if (!identifier(member))
+                continue;
+            
+            t = (Type) type.namespace.get(member);
+            if (t instanceof TypeIntegers)
+                field = "int";
+            else if (t instanceof TypeDoubles)
+                field = "double";
+            else if (t instanceof TypeBoolean)
+                field = "boolean";
+            else if (t instanceof TypeString || t instanceof TypeRegular)
+                field = "String";
+            else if (
+                t instanceof TypeDecimal || 
+                t instanceof TypeDecimalAbsolute || 
+                t instanceof TypeDecimalRelative
+                )
+                field = "java.math.BigDecimal";
+            else if (t instanceof TypeDateTime)
+                field = "org.less4j.protocols.DateTime";
+            else if (t instanceof TypeArray)
+                field = "java.util.List";
+            else if (t instanceof TypeDictionary)
+                field = "java.util.Map";
+            else if (
+                t instanceof TypeNamespace && t != TypeNamespace.singleton
+                ) {
+                field = (
+                    Character.toUpperCase(member.charAt(0)) + 
+                    member.substring(1)
+                    );
+                nested.add(member);
+            } else
+                field = "Object";
+            sb.append(indent).append("    public ").append(field);
+            sb.append(' ').append(member).append(";\n");
+        }
+        for (int i=0, L=nested.size(); i<L; i++) {
+            member = (String) nested.get(i);
+            source(
+                sb, (TypeNamespace) type.namespace.get(member), 
+                Character.toUpperCase(member.charAt(0)) + member.substring(1),
+                indent + "    "
+                );
+        }
+        sb.append(indent).append("}\n");
+    }
+    
+    private static final boolean identifier (String name) {
+        if (name.length() == 0 || !Character.isJavaIdentifierStart(
+            name.charAt(0)
+            ))
+            return false;
         
-        Type type;
+        for (int i=1, L=name.length(); i<L; i++)
+            if (!Character.isJavaIdentifierPart(name.charAt(i)))
+                return false;
+        return true;
+    }
+    
+    private static final java.lang.Object _array = "array";
+    private static final java.lang.Object _namespace = "namespace";
+    private static final java.lang.Object _dictionary = "dictionary";
+    
+    /**
+     * Compile a pattern bottom up, looking up each sub-pattern by the 
+     * types already compiled for its items or members.
+     */
+    protected static final Type compile(
+        java.lang.Object regular, Map extensions, Cache cache
+        ) {
+        Key key;
         if (regular == null) {
-            type = TypeUndefined.singleton;
+            return TypeUndefined.singleton;
         } else if (regular instanceof Boolean) {
-            type = BOOLEAN;
+            return BOOLEAN;
         } else if (regular instanceof String) {
             String s = (String) regular;
             if (extensions != null && extensions.containsKey(s))
-                type = (Type) extensions.get(s);
-            else if (s.length() > 0)
-                type = new TypeRegular(s);
-            else
-                type = STRING;
+                return (Type) extensions.get(s);
+            else if (s.length() == 0)
+                return STRING;
+            
+            key = new Key(TypeRegular.class, s, null);
+        } else if (regular instanceof ArrayList) {
+            ArrayList array = (ArrayList) regular;
+            int l = array.size();
+            if (l == 0)
+                return TypeArray.singleton;
+            
+            Type[] types = new Type[l];
+            for (int i=0; i<l; i++) 
+                types[i] = compile(array.get(i), extensions, cache);
+            key = new Key(_array, null, types);
+        } else if (regular instanceof Map) {
+            Map object = (Map) regular;
+            int l = object.size();
+            if (l == 0)
+                return TypeNamespace.singleton;
+            
+            String[] names = (String[]) object.keySet().toArray(new String[l]);
+            if (l == 1)
+                key = new Key(_dictionary, null, new Type[]{
+                    compile(names[0], extensions, cache),
+                    compile(object.get(names[0]), extensions, cache)
+                    });
+            else {
+                Arrays.sort(names);
+                Type[] types = new Type[l];
+                for (int i=0; i<l; i++) 
+                    types[i] = compile(object.get(names[i]), extensions, cache);
+                key = new Key(_namespace, names, types);
+            }
+        } else if (
+            regular instanceof Integer || 
+            regular instanceof Double || 
+            regular instanceof BigDecimal
+            ) {
+            key = new Key(regular.getClass(), regular, null);
+        } else
+            return null;
+        
+        Type type = cache.type(key);
+        if (type == null)
+            type = cache.intern(key, type(regular, key.types));
+        return type;
+    }
+    
+    /**
+     * Instanciate the type of a regular number, string, array or object
+     * given the types compiled for its items or members.
+     */
+    protected static final Type type(java.lang.Object regular, Type[] types) {
+        if (regular instanceof String) {
+            return new TypeRegular((String) regular);
         } else if (regular instanceof Integer) {
             Integer i = (Integer) regular;
             int cmpr = i.intValue(); 
             if (cmpr == 0)
-                type = INTEGER;
+                return INTEGER;
             else if (cmpr > 0)
-                type = new TypeIntegerAbsolute(i);
+                return new TypeIntegerAbsolute(i);
             else
-                type = new TypeIntegerRelative(i);
+                return new TypeIntegerRelative(i);
         } else if (regular instanceof Double) {
             Double d = (Double) regular;
             int cmpr = d.compareTo(_double_zero); 
             if (cmpr == 0)
-                type = DOUBLE;
+                return DOUBLE;
             else if (cmpr > 0)
-                type = new TypeDoubleAbsolute(d);
+                return new TypeDoubleAbsolute(d);
             else
-                type = new TypeDoubleRelative(d.doubleValue());
+                return new TypeDoubleRelative(d.doubleValue());
         } else if (regular instanceof BigDecimal) {
             BigDecimal b = (BigDecimal) regular;
             int cmpr = b.compareTo(_decimal_zero); 
             if (cmpr == 0)
-                type = new TypeDecimal();
+                return new TypeDecimal();
             else if (cmpr > 0)
-                type = new TypeDecimalAbsolute(b);
+                return new TypeDecimalAbsolute(b);
             else
-                type = new TypeDecimalRelative(b);
+                return new TypeDecimalRelative(b);
         } else if (regular instanceof ArrayList) {
-            ArrayList array = (ArrayList) regular;
-            int l = array.size();
-            if (l > 0) {
-                Type[] types = new Type[l];
-                for (int i=0; i<l; i++) 
-                    types[i] = compile(array.get(i), extensions, cache);
-                type = new TypeArray(types);
-            } else 
-                type = TypeArray.singleton;
-        } else if (regular instanceof HashMap) {
-            HashMap object = (HashMap) regular;
-            Iterator iter = object.keySet().iterator();
-            if (!iter.hasNext())
-                type = TypeNamespace.singleton;
-            else {
-                String name;
-                int i = 0;
-                HashMap namespace = new HashMap();
-                do {
-                    name = (String) iter.next();
-                    namespace.put(name, compile(
-                        object.get(name), extensions, cache
-                        )); i++;
-                } while (iter.hasNext());
-                if (i==1)
-                    type = new TypeDictionary(new Type[]{
-                        compile(name, extensions, cache),
-                        compile(object.get(name), extensions, cache)
-                        });
-                else
-                    type = new TypeNamespace(namespace);
-            } 
-        } else
-            type = null;
-        cache.put(pattern, type);
-        return type;
+            return new TypeArray(types);
+        } else {
+            Map object = (Map) regular;
+            if (object.size() == 1)
+                return new TypeDictionary(types);
+            
+            HashMap namespace = new HashMap();
+            String[] sorted = (String[]) object.keySet().toArray(
+                new String[types.length]
+                );
+            Arrays.sort(sorted);
+            for (int i=0; i<sorted.length; i++)
+                namespace.put(sorted[i], types[i]);
+            return new TypeNamespace(namespace);
+        }
     }
     
     /**
-     * ...
+     * Compile a regular pattern, sharing the types compiled for identical
+     * patterns and sub-patterns with the rest of the process.
      * 
      * @param regular
      * @param extensions
@@ -1005,11 +1857,35 @@ public class JSONR extends JSON {
      */
     public static final 
     Type compile(java.lang.Object regular, Map extensions) {
-        return compile(regular, extensions, new HashMap());
+        return compile(regular, extensions, COMPILED);
     }
     
+    private static final java.lang.Object _pattern = "pattern";
+    
     /**
-     * ...
+     * Return the key of a pattern's text and of the extensions it is
+     * compiled with, by name and type, so that the cache neither ignores
+     * extensions added later nor keeps the caller's map.
+     */
+    protected static final Key key(String pattern, Map extensions) {
+        if (extensions == null)
+            return new Key(_pattern, new String[]{pattern}, null);
+        
+        java.lang.Object[] names = extensions.keySet().toArray();
+        Arrays.sort(names);
+        String[] value = new String[names.length + 1];
+        Type[] types = new Type[names.length];
+        value[0] = pattern;
+        for (int i=0; i<names.length; i++) {
+            value[i + 1] = (String) names[i];
+            types[i] = (Type) extensions.get(names[i]);
+        }
+        return new Key(_pattern, value, types);
+    }
+    
+    /**
+     * Compile a JSON pattern, once for each text and extensions until it 
+     * is evicted from the process' cache.
      * 
      * @param pattern
      * @param extensions
@@ -1018,7 +1894,14 @@ public class JSONR extends JSON {
      */
     public static final Type compile(String pattern, Map extensions)
     throws JSON.Error {
-        return compile((new JSON()).eval(pattern), extensions);
+        Key key = key(pattern, extensions);
+        Type type = COMPILED.type(key);
+        if (type == null) {
+            type = compile((new JSON()).eval(pattern), extensions);
+            if (type != null)
+                type = COMPILED.intern(key, type);
+        }
+        return type;
     }
     
     /**
@@ -1030,7 +1913,7 @@ public class JSONR extends JSON {
      */
     public static final Type compile(String pattern)
     throws JSON.Error {
-        return compile((new JSON()).eval(pattern), TYPES);
+        return compile(pattern, TYPES);
     }
 
     protected static final String IRREGULAR_ARRAY = 
@@ -1042,11 +1925,85 @@ public class JSONR extends JSON {
     protected static final String NAME_ERROR = 
         "name error";
 
+    /**
+     * An immutable configuration of a <code>Type</code> and limits that
+     * hands out one <code>JSONR</code> interpreter per thread, reset 
+     * before each evaluation.
+     * 
+     * @pre static JSONR.Interpreter model = new JSONR.Interpreter(
+     *    JSONR.compile("{\"hello\": \"^.+$\"}"), 4, 16
+     *    );
+     *...
+     *JSON.Object map = model.get().object("{\"hello\": \"world\"}");
+     */
+    public static class Interpreter extends JSON.Interpreter {
+        public final Type type;
+        public final Class record;
+        /**
+         * ...
+         * 
+         * @param type the regular type to validate
+         * @param containers a limit on the number of objects and arrays
+         * @param iterations a limit on the total count of values
+         */
+        public Interpreter(Type type, int containers, int iterations) {
+            this(type, null, containers, iterations);
+        }
+        /**
+         * Instanciate an interpreter that binds the namespaces of 
+         * <code>type</code> to new instances of <code>record</code>.
+         * 
+         * @param type the regular type to validate
+         * @param record the class of the records bound
+         * @param containers a limit on the number of objects and arrays
+         * @param iterations a limit on the total count of values
+         */
+        public Interpreter(
+            Type type, Class record, int containers, int iterations
+            ) {
+            super(containers, iterations, JSON.SYMBOLS);
+            this.type = type;
+            this.record = record;
+        }
+        protected JSON create() {
+            return new JSONR(type, record, containers, iterations);
+        }
+        protected void reset(JSON json) {
+            super.reset(json);
+            ((JSONR) json).type = type;
+            ((JSONR) json).record = record;
+        }
+    }
+    
     /**
      * ...
      */
     public Type type = null;
     
+    /**
+     * The class of the records bound to the namespace evaluated, or 
+     * <code>null</code> to evaluate <code>JSON.Object</code> maps.
+     * 
+     * @p Records are new instances of a class with a public no-argument
+     * constructor, their public fields are set by name:
+     * 
+     * @pre public static class Job {
+     *    public int seconds;
+     *    public int ms;
+     *}
+     *JSONR interpreter = new JSONR(
+     *    JSONR.compile("{\"seconds\": 3599, \"ms\": 99}"), Job.class
+     *    );
+     *Job job = (Job) interpreter.eval("{\"seconds\": 59, \"ms\": 9}");
+     */
+    public Class record = null;
+    
+    private Node node = null;
+    
+    private Class bound = null;
+    
+    {symbols = JSON.SYMBOLS;}
+    
     /**
      * ...
      * 
@@ -1065,6 +2022,30 @@ public class JSONR extends JSON {
         super(containers, iterations); this.type = type;
     }
     
+    /**
+     * Instanciate an interpreter that binds the namespace of 
+     * <code>type</code> to new instances of <code>record</code>.
+     * 
+     * @param type of a namespace
+     * @param record the class of the records bound
+     */
+    public JSONR(Type type, Class record) {
+        super(); this.type = type; this.record = record;
+    }
+    
+    /**
+     * Instanciate an interpreter with limits that binds the namespace of
+     * <code>type</code> to new instances of <code>record</code>.
+     * 
+     * @param type of a namespace
+     * @param record the class of the records bound
+     * @param containers
+     * @param iterations
+     */
+    public JSONR(Type type, Class record, int containers, int iterations) {
+        super(containers, iterations); this.type = type; this.record = record;
+    }
+    
     /**
      * ...
      * 
@@ -1112,38 +2093,59 @@ public class JSONR extends JSON {
     }
     
     /**
-     * ...
+     * Return the node compiled for <code>type</code> and bound to 
+     * <code>record</code> if it is a namespace, again if another type or 
+     * record class was assigned.
      */
-    public java.lang.Object eval(String json) 
-    throws JSON.Error {
-        buf = new StringBuffer();
-        it = new StringCharacterIterator(json);
-        try {
-            c = it.first();
-            return value(type);
-        } finally {
-            buf = null;
-            it = null;
+    protected final Node node() {
+        if (node == null || node.type != type || bound != record) {
+            node = node(type);
+            if (record != null && node instanceof NodeNamespace)
+                node = record((NodeNamespace) node, record);
+            bound = record;
         }
+        return node;
     }
     
-    /**
-     * ...
-     */
-    public JSON.Error update(Map o, String json) {
-        buf = new StringBuffer();
-        it = new StringCharacterIterator(json);
+    protected java.lang.Object eval() throws JSON.Error {
+        Node node = node();
+        if (
+            parallel > 0 && end - begin >= parallel && 
+            node instanceof NodeCollection
+            ) {
+            java.lang.Object array = parallel();
+            if (array != null)
+                return array;
+        }
+        return value(node);
+    }
+    
+    protected JSON fork() {
+        return new JSONR(type, record);
+    }
+    
+    protected java.lang.Object item(int index) throws JSON.Error {
+        Node node = node();
+        if (node instanceof NodeCollection)
+            return value(((NodeCollection) node).item, index);
+        
+        return value(index);
+    }
+    
+    protected JSON.Error update(Map o) {
         try {
-            c = it.first();
-            while (Character.isWhitespace(c)) c = it.next();
+            while (Character.isWhitespace(c)) next();
             if (c == '{') {
-                if (type instanceof TypeNamespace) {
-                    c = it.next();
-                    namespace(o, ((TypeNamespace) type).namespace);
+                Node node = node();
+                if (node instanceof NodeRecord)
+                    node = ((NodeRecord) node).namespace;
+                if (node instanceof NodeNamespace) {
+                    next();
+                    ((NodeNamespace) node).members(this, o);
                     return null;
-                } else if (type instanceof TypeDictionary) {
-                    c = it.next();
-                    dictionary(o, ((TypeDictionary) type).types);
+                } else if (node instanceof NodeDictionary) {
+                    next();
+                    ((NodeDictionary) node).members(this, o);
                     return null;
                 } else
                     return new Error(JSON.OBJECT_TYPE_ERROR);
@@ -1151,99 +2153,71 @@ public class JSONR extends JSON {
                 return error(JSON.OBJECT_TYPE_ERROR);
         } catch (JSON.Error e){
             return e;
-        } finally {
-            buf = null;
-            it = null;
         }
     }
     
-    /**
-     * ...
-     */
-    public JSON.Error extend(List a, String json) {
-        if (!(type instanceof TypeArray))
+    protected JSON.Error extend(List a) {
+        Node node = node();
+        if (!(node instanceof NodeCollection || node instanceof NodeRelation))
             return new Error(JSON.ARRAY_TYPE_ERROR);
         
-        buf = new StringBuffer();
-        it = new StringCharacterIterator(json);
         try {
-            c = it.first();
-            while (Character.isWhitespace(c)) c = it.next();
+            while (Character.isWhitespace(c)) next();
             if (c == '[') {
-                c = it.next();
-                array(a, ((TypeArray) type).iterator());
+                next();
+                if (node instanceof NodeCollection)
+                    ((NodeCollection) node).items(this, a);
+                else
+                    ((NodeRelation) node).items(this, a);
                 return null;
             } else
                 return error(JSON.ARRAY_TYPE_ERROR);
         } catch (JSON.Error e){
             return e;
-        } finally {
-            buf = null;
-            it = null;
         }
     }
     
-    protected final java.lang.Object value(Type type) 
+    /**
+     * Evaluate the value at the cursor with its node, scanning scalars and
+     * leaving objects and arrays to the node.
+     */
+    protected final java.lang.Object value(Node node) 
     throws JSON.Error {
-        while (Character.isWhitespace(c)) c = it.next();
+        while (Character.isWhitespace(c)) next();
         switch(c){
-        case '{': {
-            if (type instanceof TypeNamespace) {
-                TypeNamespace t = (TypeNamespace) type;
-                c = it.next();
-                return t.value(namespace(new JSON.Object(), t.namespace));
-            } else if (type instanceof TypeDictionary) {
-                TypeDictionary t = (TypeDictionary) type;
-                c = it.next();
-                return t.value(dictionary(new JSON.Object(), t.types));
-            } else if (type == TypeUndefined.singleton) {
-                c = it.next();
-                return object(new JSON.Object());
-            } else
-                throw error(TypeNamespace.IRREGULAR_OBJECT);
-        }
-        case '[': {
-            if (type instanceof TypeArray) { 
-                c = it.next(); 
-                Iterator types = ((TypeArray) type).iterator();
-                if (types.hasNext())
-                    return array(new JSON.Array(), types);
-                else
-                    return array(new JSON.Array());
-            } else if (type == TypeUndefined.singleton) {
-                c = it.next();
-                return array(new JSON.Array());
-            } else 
-                throw error(IRREGULAR_ARRAY);
-        }
-        case '"': {c = it.next(); return type.value(string());}
+        case '{': return node.object(this);
+        case '[': return node.array(this);
+        case '"': {next(); return typed(node.type, string());}
         case '0': case '1': case '2': case '3': case '4':  
         case '5': case '6': case '7': case '8': case '9': 
         case '-': {
-            return type.value(number());
+            if (node.doubles != null)
+                return typed(node.doubles, real());
+            
+            return typed(node.type, number());
         }
         case 't': {
             if (next('r') && next('u') && next('e')) {
-                c = it.next(); return type.value(Boolean.TRUE);
+                next(); return typed(node.type, Boolean.TRUE);
             } else
                 throw error(TRUE_EXPECTED);
         }
         case 'f': {
             if (next('a') && next('l') && next('s') && next('e')) {
-                c = it.next(); return type.value(Boolean.FALSE);
+                next(); return typed(node.type, Boolean.FALSE);
             } else
                 throw error(FALSE_EXPECTED);
         }
         case 'n': {
             if (next('u') && next('l') && next('l')) {
-                c = it.next(); return type.value(null);
+                next(); return typed(node.type, null);
             } else
                 throw error(NULL_EXPECTED);
         }
-        case ',': {c = it.next(); return JSON.COMMA;} 
-        case ':': {c = it.next(); return JSON.COLON;}
-        case ']': {c = it.next(); return JSON.ARRAY;} 
-        case '}': {c = it.next(); return JSON.OBJECT;}
+        case ',': {next(); return JSON.COMMA;} 
+        case ':': {next(); return JSON.COLON;}
+        case ']': {next(); return JSON.ARRAY;} 
+        case '}': {next(); return JSON.OBJECT;}
         case JSON._done:
             throw error(UNEXPECTED_END);
         default: 
@@ -1251,142 +2225,73 @@ public class JSONR extends JSON {
         }
     }
     
-    protected final java.lang.Object value(Type type, String name) 
+    protected final java.lang.Object value(Node node, String name) 
+    throws JSON.Error {
+        push(name, 0);
+        java.lang.Object value = value(node);
+        pop();
+        return value;
+    }
+    
+    protected final java.lang.Object value(Node node, int index) 
     throws JSON.Error {
+        push(null, index);
+        java.lang.Object value = value(node);
+        pop();
+        return value;
+    }
+    
+    /**
+     * Return the value of <code>instance</code> for <code>type</code> or
+     * throw its error with the path of the value evaluated.
+     */
+    protected final java.lang.Object typed(
+        Type type, java.lang.Object instance
+        ) throws JSON.Error {
         try {
-            return value(type);
-        } catch (Error e) {
-            e.jsonIndex = it.getIndex();
-            e.jsonPath.add(0, name);
-            throw e;
+            return type.value(instance);
         } catch (JSON.Error e) {
-            e.jsonPath.add(0, name);
-            throw e;
+            throw error(e);
         }
     }
     
-    protected final java.lang.Object value(Type type, int index) 
+    protected final java.lang.Object typed(TypeDoubles type, double d) 
     throws JSON.Error {
         try {
-            return value(type);
-        } catch (Error e) {
-            e.jsonIndex = it.getIndex();
-            e.jsonPath.add(0, new Integer(index));
-            throw e;
+            return type.value(d);
         } catch (JSON.Error e) {
-            e.jsonPath.add(0, new Integer(index));
-            throw e;
+            throw error(e);
         }
     }
     
-    protected final java.lang.Object dictionary(Map o, Type[] types) 
+    protected final void tested(TypeDoubles type, double d) 
     throws JSON.Error {
-        if (--containers < 0) 
-            throw error(CONTAINERS_OVERFLOW);
-        
-        java.lang.Object val;
-        java.lang.Object token = value(types[0]);
-        while (token != JSON.OBJECT) {
-            if (!(token instanceof String))
-                throw error(STRING_EXPECTED);
-            
-            if (--iterations < 0) 
-                throw error(ITERATIONS_OVERFLOW);
-            
-            if (value() == JSON.COLON) {
-                val = value(types[1]);
-                if (val==JSON.COLON || val==JSON.COMMA || val==JSON.OBJECT || val==ARRAY)
-                    throw error(VALUE_EXPECTED);
-                
-                o.put(token, val);
-                token = value(types[0]);
-                if (token == JSON.COMMA)
-                    token = value();
-            } else {
-                throw error(COLON_EXPECTED);
-            }
+        try {
+            type.test(d);
+        } catch (JSON.Error e) {
+            throw error(e);
         }
-        return o;
     }
     
-    protected final java.lang.Object namespace(Map o, HashMap namespace) 
+    protected final void tested(TypeIntegers type, int i) 
     throws JSON.Error {
-        if (--containers < 0) 
-            throw error(CONTAINERS_OVERFLOW);
-        
-        Type type;
-        String name; 
-        java.lang.Object val;
-        java.lang.Object token = value();
-        while (token != JSON.OBJECT) {
-            if (!(token instanceof String))
-                throw error(STRING_EXPECTED);
-            
-            if (--iterations < 0) 
-                throw error(ITERATIONS_OVERFLOW);
-            
-            name = (String) token;
-            type = (Type) namespace.get(name);
-            if (value() == JSON.COLON) {
-                if (type == null)
-                    throw new Error(NAME_ERROR);
-                else
-                    val = value(type, name);
-                if (val==JSON.COLON || val==JSON.COMMA || val==JSON.OBJECT || val==ARRAY)
-                    throw error(VALUE_EXPECTED);
-                
-                o.put(name, val);
-                token = value();
-                if (token == JSON.COMMA)
-                    token = value();
-            } else {
-                throw error(COLON_EXPECTED);
-            }
+        try {
+            type.test(i);
+        } catch (JSON.Error e) {
+            throw error(e);
         }
-        return o;
     }
     
-    protected final java.lang.Object array(List a, Iterator types) 
-    throws JSON.Error {
-        if (--containers < 0) 
-            throw error(CONTAINERS_OVERFLOW);
-
-        int i = 0;
-        Type type = (Type) types.next();
-        java.lang.Object token = value(type, i++);
-        if (types.hasNext()) {
-            while (token != JSON.ARRAY) {
-                if (token==JSON.COLON || token==JSON.COMMA || token==JSON.OBJECT)
-                    throw error(VALUE_EXPECTED);
-                
-                if (--iterations < 0) 
-                    throw error(ITERATIONS_OVERFLOW);
-             
-                a.add(token);
-                token = value(); 
-                if (token == JSON.COMMA)
-                    if (types.hasNext())
-                        token = value((Type) types.next(), i++);
-                    else
-                        throw new Error(ARRAY_OVERFLOW);
-            }
-            if (types.hasNext())
-                throw error(PARTIAL_ARRAY);
-        } else {
-            while (token != JSON.ARRAY) {
-                if (token==JSON.COLON || token==JSON.COMMA || token==JSON.OBJECT)
-                    throw error(VALUE_EXPECTED);
-                
-                if (--iterations < 0) 
-                    throw error(ITERATIONS_OVERFLOW);
-             
-                a.add(token);
-                token = value(); 
-                if (token == JSON.COMMA)
-                    token = value(type, i++);
-            }
-        }
-        return a;
+    /**
+     * Attach the path of the value evaluated to an error, and the current
+     * index to a JSONR error thrown inside a container.
+     */
+    protected final JSON.Error error(JSON.Error e) {
+        int index = index();
+        trail(e);
+        if (e instanceof Error && e.depth > 0)
+            e.jsonIndex = index;
+        return e;
     }
     
 }
\ No newline at end of file
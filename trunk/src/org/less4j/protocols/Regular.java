@@ -0,0 +1,492 @@
+/* Copyright (C) 2006-2007 Laurent A.V. Szyster
+
+This library is free software; you can redistribute it and/or modify
+it under the terms of version 2 of the GNU Lesser General Public License as
+published by the Free Software Foundation.
+
+   http://www.gnu.org/copyleft/lesser.html
+
+This library is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+
+You should have received a copy of the GNU Lesser General Public License
+along with this library; if not, write to the Free Software Foundation,
+Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA */
+
+package org.less4j.protocols; // less java for more applications
+
+import java.util.Arrays;
+
+/**
+ * Match whole strings against the simple regular expressions found in
+ * JSONR patterns without <code>java.util.regex</code>, allocating nothing.
+ *
+ * @p Expressions made of a sequence of ASCII literals, escapes, dots,
+ * <code>\d \D \w \W \s \S</code> and bracketed classes, each optionally
+ * quantified with <code>* + ? {m} {m,} {m,n}</code> and anchored with a
+ * leading <code>^</code> or a trailing <code>$</code>, are compiled to a
+ * bit-parallel automaton of at most 63 positions, one bit per position.
+ * Literal expressions are compared, literal prefixes followed by a
+ * sequence of the same class only need their length and characters
+ * checked and the others are simulated one character at a time with a
+ * few shifts and masks.
+ *
+ * @p Like <code>java.util.regex</code> without flags, dots do not match
+ * line terminators and classes are ASCII only. Expressions outside this
+ * subset are not compiled and must be left to <code>Pattern</code>.
+ *
+ * @pre Regular regular = Regular.compile("^...........*$");
+ *if (regular != null && regular.matches(salt))
+ *    ...
+ */
+public final class Regular {
+
+    private static final int LITERAL = 0;
+    private static final int CLASS = 1;
+    private static final int AUTOMATON = 2;
+
+    private final int mode;
+    private final String literal;
+    private final int prefix;
+    private final int min;
+    private final int max;
+    private final long[] ascii = new long[128];
+    private long other = 0;
+    private long terminators = 0;
+    private long optional = 0;
+    private long repeated = 0;
+    private final long start;
+    private final long first;
+    private final long last;
+
+    private Regular(Parser parser) {
+        int n = parser.count;
+        for (int p = 0; p < n; p++) {
+            long bit = 1L << p;
+            boolean[] set = parser.sets[p];
+            for (int c = 0; c < 128; c++)
+                if (set[c])
+                    ascii[c] |= bit;
+            if (parser.others[p])
+                other |= bit;
+            if (parser.terminators[p])
+                terminators |= bit;
+            if (parser.optionals[p])
+                optional |= bit;
+            if (parser.repeats[p])
+                repeated |= bit;
+        }
+        last = 1L << n;
+        start = closure(1L);
+        min = parser.min;
+        max = (parser.max < 0 ? Integer.MAX_VALUE: parser.max);
+        int i = 0;
+        StringBuffer sb = new StringBuffer();
+        while (i < n && parser.chars[i] >= 0
+            && !parser.optionals[i] && !parser.repeats[i])
+            sb.append((char) parser.chars[i++]);
+        prefix = i;
+        literal = sb.toString();
+        first = 1L << prefix;
+        boolean uniform = true;
+        for (int p = prefix + 1; p < n && uniform; p++)
+            uniform = (
+                parser.others[p] == parser.others[prefix] &&
+                parser.terminators[p] == parser.terminators[prefix] &&
+                Arrays.equals(parser.sets[p], parser.sets[prefix])
+                );
+        if (prefix == n)
+            mode = LITERAL;
+        else if (uniform)
+            mode = CLASS;
+        else
+            mode = AUTOMATON;
+    }
+
+    /**
+     * Compile a regular expression to match whole strings, or return
+     * <code>null</code> if it is outside the simple subset supported.
+     *
+     * @param expression to compile
+     * @return a <code>Regular</code> automaton or <code>null</code>
+     */
+    public static final Regular compile(String expression) {
+        Parser parser = new Parser(expression);
+        if (parser.parse())
+            return new Regular(parser);
+
+        return null;
+    }
+
+    private final long closure(long x) {
+        if (optional == 0)
+            return x;
+
+        long y = x | ((x & optional) << 1);
+        while (y != x) {
+            x = y;
+            y = x | ((x & optional) << 1);
+        }
+        return x;
+    }
+
+    private final long mask(char c) {
+        if (c < 128)
+            return ascii[c];
+        else if (c == '\u0085' || c == '\u2028' || c == '\u2029')
+            return terminators;
+        else
+            return other;
+    }
+
+    /**
+     * Test wether a whole string matches.
+     *
+     * @param string to match
+     * @return true if <code>string</code> matches
+     */
+    public final boolean matches(String string) {
+        int L = string.length();
+        if (L < min || L > max)
+            return false;
+
+        switch (mode) {
+        case LITERAL:
+            return literal.equals(string);
+        case CLASS:
+            if (prefix > 0 && !string.startsWith(literal))
+                return false;
+
+            for (int i = prefix; i < L; i++)
+                if ((mask(string.charAt(i)) & first) == 0)
+                    return false;
+            return true;
+        default:
+            if (prefix > 0 && !string.startsWith(literal))
+                return false;
+
+            long state = (prefix > 0 ? 1L << (prefix - 1): 0);
+            long candidates = (prefix > 0 ? closure(state << 1): start);
+            for (int i = prefix; i < L; i++) {
+                state = (candidates | (state & repeated))
+                    & mask(string.charAt(i));
+                if (state == 0)
+                    return false;
+
+                candidates = closure(state << 1);
+            }
+            return (candidates & last) != 0;
+        }
+    }
+
+    /**
+     * A parser of the simple regular expressions supported, filling one
+     * set of characters and flags for each position of the automaton.
+     */
+    private static final class Parser {
+
+        private static final int POSITIONS = 63;
+
+        private final String expression;
+        private int at = 0;
+        private int end;
+        int count = 0;
+        int min = 0;
+        int max = 0;
+        boolean[][] sets = new boolean[POSITIONS][];
+        boolean[] others = new boolean[POSITIONS];
+        boolean[] terminators = new boolean[POSITIONS];
+        boolean[] optionals = new boolean[POSITIONS];
+        boolean[] repeats = new boolean[POSITIONS];
+        int[] chars = new int[POSITIONS];
+
+        // the class of the atom being parsed
+        private boolean[] set;
+        private boolean other;
+        private boolean terminator;
+        private int single;
+
+        Parser(String expression) {
+            this.expression = expression;
+            end = expression.length();
+        }
+
+        final boolean parse() {
+            if (at < end && expression.charAt(at) == '^')
+                at++;
+            if (end > at && expression.charAt(end - 1) == '$') {
+                int escapes = 0;
+                int i = end - 2;
+                while (i >= at && expression.charAt(i--) == '\\')
+                    escapes++;
+                if (escapes % 2 == 0)
+                    end--;
+            }
+            while (at < end) {
+                if (!atom() || !quantifier())
+                    return false;
+            }
+            return true;
+        }
+
+        private final boolean atom() {
+            set = new boolean[128];
+            other = false;
+            terminator = false;
+            single = -1;
+            char c = expression.charAt(at++);
+            switch (c) {
+            case '.':
+                for (int i = 0; i < 128; i++)
+                    set[i] = !(i == '\n' || i == '\r');
+                other = true;
+                return true;
+            case '[':
+                return brackets();
+            case '\\':
+                if (at >= end)
+                    return false;
+
+                return escape(expression.charAt(at++), false);
+            case '^': case '$': case '|': case '(': case ')': case ']':
+            case '{': case '}': case '*': case '+': case '?':
+                return false;
+            default:
+                if (c >= 128)
+                    return false;
+
+                set[c] = true;
+                single = c;
+                return true;
+            }
+        }
+
+        private final void negate() {
+            for (int i = 0; i < 128; i++)
+                set[i] = !set[i];
+            other = !other;
+            terminator = !terminator;
+        }
+
+        /**
+         * Add the characters of an escape to the set, or only its
+         * literal character to a range if <code>ranged</code>.
+         */
+        private final boolean escape(char c, boolean ranged) {
+            int literal = -1;
+            switch (c) {
+            case 'd': case 'D': case 'w': case 'W': case 's': case 'S':
+                if (ranged)
+                    return false;
+
+                boolean[] saved = set;
+                boolean others = other, terminators = terminator;
+                set = new boolean[128];
+                other = terminator = false;
+                for (int i = 0; i < 128; i++)
+                    set[i] = (
+                        (c == 'd' || c == 'D') ? (i >= '0' && i <= '9'):
+                        (c == 'w' || c == 'W') ? (
+                            (i >= 'a' && i <= 'z') || (i >= 'A' && i <= 'Z') ||
+                            (i >= '0' && i <= '9') || i == '_'
+                            ):
+                        (i == ' ' || i == '\t' || i == '\n' ||
+                            i == 0x0B || i == '\f' || i == '\r')
+                        );
+                if (c == 'D' || c == 'W' || c == 'S')
+                    negate();
+                for (int i = 0; i < 128; i++)
+                    saved[i] |= set[i];
+                set = saved;
+                other |= others;
+                terminator |= terminators;
+                single = -1;
+                return true;
+            case 't': literal = '\t'; break;
+            case 'n': literal = '\n'; break;
+            case 'r': literal = '\r'; break;
+            case 'f': literal = '\f'; break;
+            case 'a': literal = 0x07; break;
+            case 'e': literal = 0x1B; break;
+            default:
+                if (c >= 128
+                    || (c >= 'a' && c <= 'z')
+                    || (c >= 'A' && c <= 'Z')
+                    || (c >= '0' && c <= '9'))
+                    return false;
+
+                literal = c;
+            }
+            if (ranged) {
+                single = literal;
+                return true;
+            }
+            set[literal] = true;
+            single = literal;
+            return true;
+        }
+
+        private final boolean brackets() {
+            boolean negated = false;
+            if (at < end && expression.charAt(at) == '^') {
+                negated = true;
+                at++;
+            }
+            if (at >= end || expression.charAt(at) == ']')
+                return false;
+
+            int first, last, open = at;
+            char c;
+            boolean[] items = set;
+            while (at < end) {
+                c = expression.charAt(at++);
+                if (c == '-' && at - 1 != open && (
+                    at >= end || expression.charAt(at) != ']'
+                    )) {
+                    return false;
+                } else if (c == ']') {
+                    single = -1;
+                    if (negated)
+                        negate();
+                    return true;
+                } else if (c == '[' || c >= 128) {
+                    return false;
+                } else if (
+                    c == '&' && at < end && expression.charAt(at) == '&'
+                    ) {
+                    return false;
+                } else if (c == '\\') {
+                    if (at >= end)
+                        return false;
+
+                    c = expression.charAt(at++);
+                    if (c == 'd' || c == 'D' || c == 'w' || c == 'W'
+                        || c == 's' || c == 'S') {
+                        if (!escape(c, false))
+                            return false;
+
+                        if (at + 1 < end && expression.charAt(at) == '-'
+                            && expression.charAt(at + 1) != ']')
+                            return false;
+
+                        continue;
+                    }
+                    if (!escape(c, true))
+                        return false;
+
+                    first = single;
+                } else
+                    first = c;
+                if (at + 1 < end && expression.charAt(at) == '-'
+                    && expression.charAt(at + 1) != ']') {
+                    at++;
+                    c = expression.charAt(at++);
+                    if (c == '\\') {
+                        if (at >= end || !escape(expression.charAt(at++), true))
+                            return false;
+
+                        last = single;
+                    } else if (c == '[' || c == '-' || c >= 128)
+                        return false;
+                    else
+                        last = c;
+                    if (last < first)
+                        return false;
+                } else
+                    last = first;
+                for (int i = first; i <= last; i++)
+                    items[i] = true;
+            }
+            return false;
+        }
+
+        private final int number() {
+            int n = -1, d;
+            while (at < end) {
+                d = expression.charAt(at) - '0';
+                if (d < 0 || d > 9)
+                    break;
+                n = (n < 0 ? 0: n) * 10 + d;
+                if (n > POSITIONS)
+                    return POSITIONS + 1;
+                at++;
+            }
+            return n;
+        }
+
+        private final boolean quantifier() {
+            int lower = 1, upper = 1;
+            if (at < end) {
+                switch (expression.charAt(at)) {
+                case '*':
+                    lower = 0; upper = -1; at++; break;
+                case '+':
+                    upper = -1; at++; break;
+                case '?':
+                    lower = 0; at++; break;
+                case '{':
+                    at++;
+                    lower = number();
+                    if (lower < 0 || at >= end)
+                        return false;
+
+                    if (expression.charAt(at) == '}')
+                        upper = lower;
+                    else if (expression.charAt(at) == ',') {
+                        at++;
+                        upper = number();
+                        if (at >= end || expression.charAt(at) != '}')
+                            return false;
+
+                        if (upper >= 0 && upper < lower)
+                            return false;
+                    } else
+                        return false;
+                    at++;
+                    break;
+                default:
+                    break;
+                }
+                if (at < end && expression.charAt(at) == '?')
+                    at++; // reluctant quantifiers match the same strings
+                else if (at < end && expression.charAt(at) == '+')
+                    return false;
+            }
+            if (upper == 0)
+                return true;
+
+            min += lower;
+            if (upper < 0 || max < 0)
+                max = -1;
+            else
+                max += upper;
+            for (int i = 0; i < lower; i++)
+                if (!position(false, upper < 0 && i == lower - 1))
+                    return false;
+            if (upper < 0 && lower == 0)
+                return position(true, true);
+
+            for (int i = lower; i < upper; i++)
+                if (!position(true, false))
+                    return false;
+            return true;
+        }
+
+        private final boolean position(boolean optional, boolean repeat) {
+            if (count >= POSITIONS)
+                return false;
+
+            sets[count] = set;
+            others[count] = other;
+            terminators[count] = terminator;
+            optionals[count] = optional;
+            repeats[count] = repeat;
+            chars[count] = single;
+            count++;
+            return true;
+        }
+
+    }
+
+}
@@ -384,7 +384,7 @@ public class SQL {
                 st = null;
             }
         }
-        return new Integer(result);
+        return JSON.integer(result);
     }
     
     /**
@@ -415,7 +415,7 @@ public class SQL {
                 st = null;
             }
         }
-        return new Integer(result);
+        return JSON.integer(result);
     }
     
     /**
@@ -453,7 +453,7 @@ public class SQL {
                 st = null;
             }
         }
-        return new Integer(result);
+        return JSON.integer(result);
     }
     
 }
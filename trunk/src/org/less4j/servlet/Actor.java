@@ -22,6 +22,7 @@ import java.util.Map;
 import java.util.regex.Pattern;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.ByteBuffer;
 
 import java.sql.DriverManager;
@@ -49,6 +50,7 @@ import org.less4j.protocols.JSONR;
 import org.less4j.protocols.SHA1;
 import org.less4j.protocols.SQL;
 import org.less4j.simple.Bytes;
+import org.less4j.simple.Function;
 import org.less4j.simple.IO;
 import org.less4j.simple.Objects;
 import org.less4j.simple.Strings;
@@ -159,6 +161,13 @@ public class Actor {
      */
     public JSON.Object json = null;
     
+    /**
+     * The record bound from the request's JSON object when the 
+     * controller's <code>JSONR</code> interpreter has a record class, or
+     * <code>null</code>.
+     */
+    public Object record = null;
+    
     /**
      * An open JDBC connection or <code>null</code>.
      */
@@ -332,7 +341,9 @@ public class Actor {
     /**
      * Write a full stack trace to STDERR in test mode or just one line
      * in production, prefix both the IRTD2 digest and categorize it as 
-     * <code>JAVA</code>.
+     * <code>JAVA</code>. Errors without a stack trace, like 
+     * <code>JSON.Error</code> when <code>JSON.Error.traces</code> is not
+     * set, are logged without their thrower.
      * 
      * @pre try {...} catch (Exception e) {logError (e);}
      *     
@@ -341,21 +352,25 @@ public class Actor {
      */
     public String logError (Throwable error) {
         StackTraceElement[] stacktrace = error.getStackTrace();
-        StackTraceElement thrower;
-        int i = 0;
-        do {
-            thrower = stacktrace[i++];
-        } while (thrower.getLineNumber() == -1 && i < stacktrace.length);
         StringBuffer sb = new StringBuffer();
         sb.append(_stackTrace);
         sb.append(digested);
         sb.append(' ');
-        sb.append(thrower.getClassName());
-        sb.append('.');
-        sb.append(thrower.getMethodName());
-        sb.append(' ');
-        sb.append(thrower.getLineNumber());
-        sb.append(' ');
+        if (stacktrace.length > 0) {
+            StackTraceElement thrower;
+            int i = 0;
+            do {
+                thrower = stacktrace[i++];
+            } while (
+                thrower.getLineNumber() == -1 && i < stacktrace.length
+                );
+            sb.append(thrower.getClassName());
+            sb.append('.');
+            sb.append(thrower.getMethodName());
+            sb.append(' ');
+            sb.append(thrower.getLineNumber());
+            sb.append(' ');
+        }
         sb.append(error.getClass().getName());
         sb.append(' ');
         sb.append(error.getMessage());
@@ -486,7 +501,7 @@ public class Actor {
             digested = "";
         }
         String[] vector = new String[]{
-            identity, rights, (new Integer(time)).toString(), digested, null
+            identity, rights, Integer.toString(time), digested, null
             };
         digest = IRTD2.digest(vector, salts[0]);
         vector[4] = digest; 
@@ -782,6 +797,8 @@ public class Actor {
     public boolean jsonGET(Object interpreter) {
         JSONR.Type model = null;
         int containers, iterations;
+        if (interpreter instanceof JSON.Interpreter)
+            interpreter = ((JSON.Interpreter) interpreter).get();
         if (interpreter instanceof JSONR) {
             JSONR intr = (JSONR) interpreter;
             containers = intr.containers;
@@ -820,7 +837,10 @@ public class Actor {
         }
         if (model != null) try {
             JSONR.validate(json, model);
-        } catch (JSONR.Error e) {
+            Class type = ((JSONR) interpreter).record;
+            if (type != null)
+                record = JSON.codec(type).bind(json);
+        } catch (JSON.Error e) {
             return false;
         }
         return true;
@@ -852,11 +872,13 @@ public class Actor {
         Object object;
         if (body == null) 
             return false; 
+        if (interpreter instanceof JSON.Interpreter)
+            interpreter = ((JSON.Interpreter) interpreter).get();
         if (interpreter instanceof JSON) {
             JSON intr = (JSON) interpreter;
             try {
-                // parse JSON when the buffer is filled but not overflowed
-                object = intr.eval(new String(body, _UTF_8));
+                // parse UTF-8 JSON when the buffer is filled but not overflowed
+                object = intr.eval(body, 0, body.length);
             } catch (Exception e) {
                 logError(e);
                 return false;
@@ -864,7 +886,7 @@ public class Actor {
         } else if (interpreter instanceof JSONR) {
             JSONR intr = (JSONR) interpreter;
             try {
-                object = intr.eval(new String(body, _UTF_8));
+                object = intr.eval(body, 0, body.length);
             } catch (Exception e) {
                 logError(e);
                 return false;
@@ -875,7 +897,14 @@ public class Actor {
         }
         if (object != null && object instanceof JSON.Object)
             json = (JSON.Object) object;
-        else {
+        else if (
+            interpreter instanceof JSONR && 
+            ((JSONR) interpreter).record != null &&
+            ((JSONR) interpreter).record.isInstance(object)
+            ) {
+            record = object;
+            json = new JSON.Object();
+        } else {
             json = new JSON.Object();
             json.put(_arg0, object);
         }
@@ -965,6 +994,9 @@ public class Actor {
      * actor's JSON object encoded in UTF-8 as body and audit the response, 
      * or log an error.
      * 
+     * @p Names are not sorted, use <code>jsonDigest</code> to sign a
+     * canonical representation of a value in the response.
+     * 
      * @param status of the response
      * @param body of the response 
      */
@@ -972,7 +1004,226 @@ public class Actor {
         if (test)
             jsonResponse(status, JSON.pprint(json));
         else
-            jsonResponse(status, JSON.encode(json));
+            jsonResponse(status, JSON.encode(json, false));
+    }
+    
+    private static final ThreadLocal _jsonWriters = new ThreadLocal();
+    
+    /**
+     * Try to complete an HTTP/1.X response <code>code</code> with a value
+     * encoded in UTF-8 and written to the response's output stream as it 
+     * is serialized, through a buffer reused by the servlet's thread, then 
+     * audit the response or log an error.
+     * 
+     * @p No Content-Length is set, so HTTP/1.1 responses larger than the
+     * buffer are sent with a chunked transfer encoding. Names are not 
+     * sorted. In test mode the value is pretty printed and buffered.
+     * 
+     * @param status of the response
+     * @param value to serialize
+     */
+    public void jsonStream (int status, Object value) {
+        if (test) {
+            jsonResponse(status, JSON.pprint(value));
+            return;
+        }
+        irtd2SetCookie();
+        response.setStatus(status);
+        response.setContentType(jsonContentType);
+        JSON.Writer writer = (JSON.Writer) _jsonWriters.get();
+        if (writer == null) {
+            writer = new JSON.Writer(null);
+            writer.sorted = false;
+            _jsonWriters.set(writer);
+        }
+        try {
+            response.setBufferSize(IO.netBufferSize);
+            writer.reset(response.getOutputStream()).write(value).flush();
+            response.flushBuffer();
+            logAudit(status);
+        } catch (IOException e) {
+            logError(e);
+        } finally {
+            writer.reset(null);
+        }
+    }
+    
+    /**
+     * Try to complete an HTTP/1.X response <code>code</code> with the 
+     * actor's JSON object streamed in UTF-8 as body and audit the response, 
+     * or log an error.
+     * 
+     * @param status of the response
+     */
+    public void jsonStream (int status) {
+        jsonStream(status, json);
+    }
+    
+    /**
+     * The content type of newline delimited JSON, one UTF-8 encoded value
+     * per line.
+     */
+    protected static final String ndjsonContentType = "application/x-ndjson";
+    
+    protected static final String ndjsonOverflow = "record overflow";
+    
+    /**
+     * Try to read, parse and validate the body of a POST request of type
+     * <code>application/x-ndjson</code> one record at a time, passing each 
+     * value to a function as it is read. Return true on success or log an 
+     * error and return false.
+     * 
+     * @pre public void httpContinue (Actor $, String method, String type) {
+     *    if ($.ndjsonPOST(65536, jsonRegular($), new Insert($)))
+     *        $.jsonResponse(200);
+     *    else
+     *        $.httpError(400);
+     *}
+     * 
+     * @p The body is not buffered, so its length is not limited. Instead
+     * each record must fit in <code>limit</code> bytes and the limits of 
+     * the interpreter are reset for each record. Empty lines are skipped.
+     * 
+     * @p The function may return a <code>Throwable</code> to stop reading,
+     * which is then logged. Records read before an error was found have 
+     * been applied, errors are indexed by their byte offset in the body 
+     * and have the record's line number at the root of their path.
+     * 
+     * @param limit on the length of a record
+     * @param interpreter a <code>JSON</code> or <code>JSONR</code> 
+     *        interpreter or their <code>Interpreter</code>
+     * @param records the function applied to each value
+     * @return true if successfull, false otherwise
+     */
+    public boolean ndjsonPOST(int limit, Object interpreter, Function records) {
+        if (interpreter instanceof JSON.Interpreter)
+            interpreter = ((JSON.Interpreter) interpreter).get();
+        if (!(interpreter instanceof JSON))
+            return false;
+        
+        JSON intr = (JSON) interpreter;
+        int containers = intr.containers, iterations = intr.iterations;
+        byte[] buffer = new byte[IO.netBufferSize];
+        int length = 0, start = 0, scanned = 0, offset = 0, line = 0, read;
+        try {
+            InputStream in = request.getInputStream();
+            while (true) {
+                if (length == buffer.length) {
+                    if (start > 0) {
+                        length -= start;
+                        System.arraycopy(buffer, start, buffer, 0, length);
+                        offset += start;
+                        scanned -= start;
+                        start = 0;
+                    } else {
+                        byte[] grown = new byte[buffer.length * 2];
+                        System.arraycopy(buffer, 0, grown, 0, length);
+                        buffer = grown;
+                    }
+                }
+                read = in.read(buffer, length, buffer.length - length);
+                if (read < 0)
+                    break;
+                
+                length += read;
+                for (; scanned < length; scanned++)
+                    if (buffer[scanned] == '\n') {
+                        if (scanned - start > limit)
+                            throw new JSON.Error(ndjsonOverflow, offset + start);
+                        
+                        intr.containers = containers;
+                        intr.iterations = iterations;
+                        if (!ndjsonRecord(
+                            intr, buffer, start, scanned, offset, line, records
+                            ))
+                            return false;
+                        
+                        line++;
+                        start = scanned + 1;
+                    }
+                if (length - start > limit)
+                    throw new JSON.Error(ndjsonOverflow, offset + start);
+            }
+            intr.containers = containers;
+            intr.iterations = iterations;
+            return ndjsonRecord(
+                intr, buffer, start, length, offset, line, records
+                );
+        } catch (IOException e) {
+            logError(e);
+        } catch (JSON.Error e) {
+            logError(e.path(JSON.integer(line)));
+        }
+        return false;
+    }
+    
+    /**
+     * Evaluate a record from <code>start</code> to <code>stop</code> and
+     * apply a function to its value, unless it is an empty line.
+     */
+    private final boolean ndjsonRecord(
+        JSON intr, byte[] buffer, int start, int stop, int offset, int line,
+        Function records
+        ) throws JSON.Error {
+        if (stop > start && buffer[stop - 1] == '\r')
+            stop--;
+        if (stop == start)
+            return true;
+        
+        Object value;
+        try {
+            value = intr.eval(buffer, start, stop - start);
+        } catch (JSON.Error e) {
+            if (e.jsonIndex > -1)
+                e.jsonIndex += offset + start;
+            throw e;
+        }
+        Object result = records.apply(value);
+        if (result instanceof Throwable) {
+            logError((Throwable) result);
+            return false;
+        }
+        return true;
+    }
+    
+    /**
+     * Try to complete an HTTP/1.X response <code>code</code> with the 
+     * values of an iterator as newline delimited JSON, writing each record
+     * to the response's output stream as it is iterated, through a buffer 
+     * reused by the servlet's thread, then audit the response or log an 
+     * error.
+     * 
+     * @pre $.ndjsonStream(200, new Rows($.sql));
+     * 
+     * @p No Content-Length is set and names are not sorted. Records are
+     * never pretty printed, not even in test mode.
+     * 
+     * @param status of the response
+     * @param records to serialize
+     */
+    public void ndjsonStream (int status, Iterator records) {
+        irtd2SetCookie();
+        response.setStatus(status);
+        response.setContentType(ndjsonContentType);
+        JSON.Writer writer = (JSON.Writer) _jsonWriters.get();
+        if (writer == null) {
+            writer = new JSON.Writer(null);
+            writer.sorted = false;
+            _jsonWriters.set(writer);
+        }
+        try {
+            response.setBufferSize(IO.netBufferSize);
+            writer.reset(response.getOutputStream());
+            while (records.hasNext())
+                writer.record(records.next());
+            writer.flush();
+            response.flushBuffer();
+            logAudit(status);
+        } catch (IOException e) {
+            logError(e);
+        } finally {
+            writer.reset(null);
+        }
     }
     /**
      * Try to open a J2EE datasource and disable AutoCommit, return 
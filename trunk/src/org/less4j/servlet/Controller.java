@@ -96,6 +96,8 @@ public class Controller extends HttpServlet implements Service {
     protected static final String _jsonContainers = "jsonContainers";
     protected static final String _jsonIterations = "jsonIterations";
     protected static final String _jsonRegular = "jsonRegular";
+    protected static final String _jsonLazy = "jsonLazy";
+    protected static final String _jsonInterpreter = "jsonInterpreter";
     protected static final String _jdbcDriver = "jdbcDriver";
     protected static final String _jdbcURL = "jdbcURL";
     protected static final String _jdbcUsername = "jdbcUsername";
@@ -124,6 +126,7 @@ public class Controller extends HttpServlet implements Service {
         "\"jsonContainers\": null," +
         "\"jsonIterations\": null," +
         "\"jsonRegular\": null," +
+        "\"jsonLazy\": false," +
         "\"jdbcDriver\": null," +
         "\"jdbcURL\": null," +
         "\"jdbcUsername\": null," +
@@ -259,6 +262,7 @@ public class Controller extends HttpServlet implements Service {
             $.logError(e); 
             return false;
             }
+        $.configuration.put(_jsonInterpreter, jsonInterpreter($));
         if ($.configuration.containsKey(_jdbcDriver)) {
             try {
                 Class.forName($.configuration.getString(_jdbcDriver));
@@ -437,22 +441,24 @@ public class Controller extends HttpServlet implements Service {
     }
 
     /**
-     * Returns the configured <code>JSON</code> or <code>JSONR</code> 
-     * interpreter to validate a GET request's query string or a POSTed 
-     * JSON request body. 
+     * Returns a new <code>JSON.Interpreter</code> or 
+     * <code>JSONR.Interpreter</code> for the configured limits and
+     * regular type, compiled once by <code>less4jConfigure</code>.
      * 
      * @param $ the Actor's state
-     * @return a <code>JSON</code> or <code>JSONR</code> interpreter
+     * @return a <code>JSON.Interpreter</code>
      */
-    public Object jsonRegular (Actor $) {
+    protected JSON.Interpreter jsonInterpreter (Actor $) {
         JSONR.Type model = (JSONR.Type) $.configuration.get(_jsonRegular);
         if (model == null) {
-            return new JSON(
+            return new JSON.Interpreter(
                 $.configuration.intValue(_jsonContainers, 65355),
-                $.configuration.intValue(_jsonIterations, 65355)
+                $.configuration.intValue(_jsonIterations, 65355),
+                JSON.SYMBOLS,
+                $.configuration.booleanValue(_jsonLazy, false)
                 );
         } else {
-            return new JSONR(
+            return new JSONR.Interpreter(
                 model,
                 $.configuration.intValue(_jsonContainers, 65355),
                 $.configuration.intValue(_jsonIterations, 65355)
@@ -460,6 +466,22 @@ public class Controller extends HttpServlet implements Service {
         }
     }
     
+    /**
+     * Returns this thread's configured <code>JSON</code> or 
+     * <code>JSONR</code> interpreter, reset to validate a GET request's 
+     * query string or a POSTed JSON request body. 
+     * 
+     * @param $ the Actor's state
+     * @return a <code>JSON</code> or <code>JSONR</code> interpreter
+     */
+    public Object jsonRegular (Actor $) {
+        JSON.Interpreter interpreter = (JSON.Interpreter) 
+            $.configuration.get(_jsonInterpreter);
+        if (interpreter == null)
+            interpreter = jsonInterpreter($);
+        return interpreter.get();
+    }
+    
     /**
      * Reply with an HTTP error 501 to JSON application requests not handled
      * by the configured <code>Service</code>s.
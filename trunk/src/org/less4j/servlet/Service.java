@@ -175,6 +175,29 @@ public interface Service {
      *    return new JSONR(model);
      *}
      * 
+     * @p Or return a <code>JSON.Interpreter</code> compiled once, to reuse
+     * one interpreter per thread instead of allocating one per request:
+     * 
+     * @pre private static final JSONR.Interpreter interpreter = (
+     *    new JSONR.Interpreter(model, 4, 16)
+     *    ); 
+     *public Object jsonRegular (Actor $) {
+     *    return interpreter;
+     *}
+     * 
+     * @p Or bind the namespace validated to a record class with public
+     * fields, primitive for integers, doubles and booleans, found as the
+     * Actor's <code>record</code> instead of its <code>json</code> 
+     * object:
+     * 
+     * @pre public static class Hello {
+     *    public String hello;
+     *    public boolean test;
+     *}
+     *private static final JSONR.Interpreter interpreter = (
+     *    new JSONR.Interpreter(model, Hello.class, 4, 16)
+     *    ); 
+     * 
      * @p To prevent handling of URL encoded form and JSON request, return
      * <code>null</code>: 
      * 
@@ -184,7 +207,7 @@ public interface Service {
      * 
      * @param $ the Actor's state
      * @return <code>null</code>, a <code>JSON</code> or <code>JSONR</code> 
-     *         interpreter
+     *         interpreter or a <code>JSON.Interpreter</code>
      */
     public Object jsonRegular (Actor $);
     /**
@@ -14,7 +14,12 @@ public class Job implements Service {
 
     public static Service singleton = new Job ();
     
-    private JSONR.Type _interface;
+    private JSONR.Interpreter _interface;
+    
+    public static class Interface {
+        public int seconds;
+        public int ms;
+    }
     
     public String jsonInterface (Actor $) {
         return "{\"seconds\":3599, \"ms\": 99}";
@@ -22,7 +27,9 @@ public class Job implements Service {
     
     public boolean less4jConfigure (Actor $) {
         try {
-            _interface = JSONR.compile(jsonInterface($)); 
+            _interface = new JSONR.Interpreter(
+                JSONR.compile(jsonInterface($)), Interface.class, 1, 2
+                ); 
             return true;
         } catch (JSON.Error e) {
             $.logError(e);
@@ -37,15 +44,18 @@ public class Job implements Service {
     }
     
     public Object jsonRegular (Actor $) {
-        return new JSONR (_interface, 1, 2);
+        return _interface;
     }
     
     public void jsonApplication (Actor $) {
         $.jsonResponse(200);
         long t = System.currentTimeMillis();
-        int sleep_ms = $.json.intValue("ms", 0) + 1;
+        Interface job = (Interface) $.record;
+        if (job == null)
+            job = new Interface();
+        int sleep_ms = job.ms + 1;
         int loop_for = sleep_ms * 100;
-        long sleep_to = t + (($.json.intValue("seconds", 0) + 1) * 1000);
+        long sleep_to = t + ((job.seconds + 1) * 1000);
         try {
             while (System.currentTimeMillis() < sleep_to) {
                 Thread.sleep(sleep_ms); // simulate latency on I/O
@@ -23,6 +23,7 @@ import org.less4j.simple.IO;
 import org.less4j.simple.Objects;
 
 import java.io.File;
+import java.io.UnsupportedEncodingException;
 import java.util.Iterator;
 
 import java.security.MessageDigest;
@@ -133,22 +134,34 @@ public class Test {
             if (--count == 0) notify();
         }
         public synchronized boolean zero() {
-            try {wait();} catch (InterruptedException e) {;}
+            if (count > 0)
+                try {wait();} catch (InterruptedException e) {;}
             return count == 0;
         }
     }
     
+    protected static Object jsonEval(Object input) throws JSON.Error {
+        if (input instanceof char[]) {
+            char[] chars = (char[]) input;
+            return (new JSON()).eval(chars, 0, chars.length);
+        } else if (input instanceof byte[]) {
+            byte[] bytes = (byte[]) input;
+            return (new JSON()).eval(bytes, 0, bytes.length);
+        } else
+            return (new JSON()).eval((String) input);
+    }
+    
     protected static class jsonEvalThread extends Thread {
-        protected String input;
+        protected Object input;
         protected ThreadCount tc;
-        public jsonEvalThread (String input, ThreadCount tc) {
+        public jsonEvalThread (Object input, ThreadCount tc) {
             this.input = input;
             this.tc = tc;
         }
         public void run () {
             try {
                 for (int i=0;i<10;i++) 
-                    (new JSON()).eval(input);
+                    jsonEval(input);
             } catch (Exception e) {
                 e.printStackTrace();
             } finally {
@@ -157,24 +170,41 @@ public class Test {
         }
     }
     
-    protected static void jsonBenchmarkEval(String input, int scale) 
+    protected static void jsonBenchmarkEval(Object input, int scale) 
     throws JSON.Error {
-        System.out.print("evaluated ");
+        int length;
+        String units, unit;
+        if (input instanceof char[]) {
+            System.out.print("evaluated char[] ");
+            length = ((char[]) input).length;
+            units = " characters in ";
+            unit = " char/ms, ";
+        } else if (input instanceof byte[]) {
+            System.out.print("evaluated UTF-8 ");
+            length = ((byte[]) input).length;
+            units = " bytes in ";
+            unit = " byte/ms, ";
+        } else {
+            System.out.print("evaluated String ");
+            length = ((String) input).length();
+            units = " characters in ";
+            unit = " char/ms, ";
+        }
         long t = System.currentTimeMillis();
         for (int i = 0; i < scale; i++)
-            (new JSON()).eval(input);
+            jsonEval(input);
         t = System.currentTimeMillis() - t;
-        System.out.print(input.length()*scale);
+        System.out.print(length*scale);
         if (t > 0) {
-            System.out.print(" characters in ");
+            System.out.print(units);
             System.out.print(t);
             System.out.print(" milliseconds, ");
-            System.out.print(input.length()*scale/t);
-            System.out.print(" char/ms, ");
+            System.out.print(length*scale/t);
+            System.out.print(unit);
             System.out.print(scale/t);
             System.out.println(" object/ms");
         } else {
-            System.out.println(" characters in zero milliseconds");
+            System.out.println(units + "zero milliseconds");
         }
         System.out.print("threaded, ");
         ThreadCount tc = new ThreadCount(scale/10);
@@ -183,17 +213,17 @@ public class Test {
             new jsonEvalThread(input, tc).start();
         while (!tc.zero()) {;}
         t = System.currentTimeMillis() - t;
-        System.out.print(input.length()*scale);
+        System.out.print(length*scale);
         if (t > 0) {
-            System.out.print(" characters in ");
+            System.out.print(units);
             System.out.print(t);
             System.out.print(" milliseconds, ");
-            System.out.print(input.length()*scale/t);
-            System.out.print(" char/ms, ");
+            System.out.print(length*scale/t);
+            System.out.print(unit);
             System.out.print(scale/t);
             System.out.println(" object/ms");
         } else {
-            System.out.println(" characters in zero milliseconds");
+            System.out.println(units + "zero milliseconds");
         }
     }
     
@@ -237,9 +267,13 @@ public class Test {
                     String output = JSON.encode(o);
                     System.out.println(JSON.pprint(o));
                     jsonBenchmarkEval(input, scale);
+                    jsonBenchmarkEval(input.toCharArray(), scale);
+                    jsonBenchmarkEval(input.getBytes("UTF-8"), scale);
                     jsonBenchmarkStr(o, output, scale);
                 } catch (JSON.Error e) {
                     System.out.println(e.toString());
+                } catch (UnsupportedEncodingException e) {
+                    System.out.println(e.toString());
                 }
             }
         }
@@ -249,10 +283,9 @@ public class Test {
     protected static class jsonrEvalThread extends Thread {
         protected String input;
         protected ThreadCount tc;
-        protected JSONR pattern;
-        protected int containers, iterations;
+        protected JSONR.Interpreter pattern;
         public jsonrEvalThread (
-            String input, ThreadCount tc, JSONR pattern
+            String input, ThreadCount tc, JSONR.Interpreter pattern
             ) {
             this.input = input;
             this.tc = tc;
@@ -261,7 +294,7 @@ public class Test {
         public void run () {
             try {
                 for (int i=0; i<10; i++)
-                    pattern.eval(input);
+                    pattern.get().eval(input);
             } catch (Exception e) {
                 e.printStackTrace();
             } finally {
@@ -274,10 +307,13 @@ public class Test {
         String input, int scale, JSONR pattern
         ) 
     throws JSON.Error {
+        JSONR.Interpreter interpreter = new JSONR.Interpreter(
+            pattern.type, pattern.containers, pattern.iterations
+            );
         System.out.print("evaluated ");
         long t = System.currentTimeMillis();
         for (int i = 0; i < scale; i++)
-            pattern.eval(input);
+            interpreter.get().eval(input);
         t = System.currentTimeMillis() - t;
         System.out.print(input.length()*scale);
         if (t > 0) {
@@ -295,9 +331,7 @@ public class Test {
         ThreadCount tc = new ThreadCount(scale/10);
         t = System.currentTimeMillis();
         for (int i = 0; i < scale/10; i++)
-            new jsonrEvalThread(input, tc, new JSONR(
-                pattern.type, pattern.containers, pattern.iterations
-                )).start();
+            new jsonrEvalThread(input, tc, interpreter).start();
         while (!tc.zero()) {;}
         t = System.currentTimeMillis() - t;
         System.out.print(input.length()*scale);